@@ -0,0 +1,190 @@
+package se.teknikhogskolan.springcasemanagement.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import se.teknikhogskolan.springcasemanagement.model.Issue;
+import se.teknikhogskolan.springcasemanagement.model.Team;
+import se.teknikhogskolan.springcasemanagement.model.User;
+import se.teknikhogskolan.springcasemanagement.model.WorkItem;
+import se.teknikhogskolan.springcasemanagement.repository.TeamRepository;
+import se.teknikhogskolan.springcasemanagement.repository.UserRepository;
+import se.teknikhogskolan.springcasemanagement.repository.WorkItemRepository;
+import se.teknikhogskolan.springcasemanagement.search.DescriptionIndex;
+import se.teknikhogskolan.springcasemanagement.search.UserSearchIndex;
+import se.teknikhogskolan.springcasemanagement.service.IssueService;
+import se.teknikhogskolan.springcasemanagement.service.TeamService;
+import se.teknikhogskolan.springcasemanagement.service.UserService;
+import se.teknikhogskolan.springcasemanagement.service.WorkItemService;
+
+// Boots the application against an in-memory database and seeds it with the same data for the same parameters.
+// Writes stay within the business limits however long they run: setUser only moves one work item back and forth
+// within a pair of users, addUserToTeam only moves one user back and forth within a pair of teams.
+@State(Scope.Benchmark)
+public class CaseManagementState {
+    static final String[] WORDS = { "login", "timeout", "report", "invoice", "export", "printer", "network", "backup",
+            "password", "upgrade", "database", "email", "calendar", "license", "crash", "slow", "screen", "vpn",
+            "payment", "import", "sync", "search", "upload", "permission" };
+    private static final String[] FIRST_NAMES = { "Anna", "Erik", "Maria", "Lars", "Karin", "Johan", "Eva", "Per",
+            "Sara", "Nils" };
+    private static final String[] LAST_NAMES = { "Andersson", "Johansson", "Karlsson", "Nilsson", "Eriksson",
+            "Larsson", "Olsson", "Persson", "Svensson", "Gustafsson" };
+    private static final int SEED_CHUNK = 1000;
+
+    @Param("100")
+    public int teams;
+
+    @Param("8")
+    public int usersPerTeam;
+
+    @Param("3")
+    public int workItemsPerUser;
+
+    @Param("2")
+    public int issueEvery;
+
+    @Param("42")
+    public long seed;
+
+    UserService userService;
+    TeamService teamService;
+    WorkItemService workItemService;
+    IssueService issueService;
+
+    long[] teamIds;
+    long[] userNumbers;
+    long[] workItemIds;
+    int issuePages;
+    long[][] userPairNumbers;
+    long[] movingWorkItemIds;
+    long[][] teamPairIds;
+    long[] movingUserIds;
+
+    private AnnotationConfigApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        // The limits are checked before an assignment, also when it is to the current owner
+        if (teams < 2 || usersPerTeam < 2 || usersPerTeam > 8 || workItemsPerUser < 1 || workItemsPerUser > 3) {
+            throw new IllegalArgumentException("Needs at least 2 teams, 2 to 8 users per team "
+                    + "and 1 to 3 work items per user to stay within the team and user limits");
+        }
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("casemanagement.database", "h2");
+        // Dropped with the pool at the end of the trial, so the next trial in the same JVM starts empty
+        properties.put("casemanagement.datasource.jdbcUrl", "jdbc:h2:mem:benchmark;MODE=MySQL");
+        properties.put("casemanagement.replica.jdbcUrls", "");
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addLast(new MapPropertySource("benchmark", properties));
+        context.scan("se.teknikhogskolan.springcasemanagement");
+        context.refresh();
+        userService = context.getBean(UserService.class);
+        teamService = context.getBean(TeamService.class);
+        workItemService = context.getBean(WorkItemService.class);
+        issueService = context.getBean(IssueService.class);
+
+        seed(new Random(seed));
+        awaitSearchIndexes();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    static String word() {
+        return WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+    }
+
+    static long pick(long[] values) {
+        return values[ThreadLocalRandom.current().nextInt(values.length)];
+    }
+
+    private void seed(Random random) {
+        List<Team> teamRows = new ArrayList<>();
+        for (int i = 0; i < teams; i++) {
+            teamRows.add(new Team(String.format("Team %05d", i)));
+        }
+        teamRows = save(context.getBean(TeamRepository.class)::save, teamRows);
+
+        List<User> userRows = new ArrayList<>();
+        for (int i = 0; i < teams * usersPerTeam; i++) {
+            User user = new User(1_000_000L + i, String.format("user_%07d", i),
+                    FIRST_NAMES[random.nextInt(FIRST_NAMES.length)], LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+            user.setTeam(teamRows.get(i / usersPerTeam));
+            userRows.add(user);
+        }
+        userRows = save(context.getBean(UserRepository.class)::save, userRows);
+
+        List<WorkItem> workItemRows = new ArrayList<>();
+        for (int i = 0; i < userRows.size() * workItemsPerUser; i++) {
+            WorkItem workItem = new WorkItem(sentence(random) + " #" + i).setUser(userRows.get(i / workItemsPerUser));
+            workItem.setStatus(WorkItem.Status.values()[random.nextInt(WorkItem.Status.values().length)]);
+            if (i % issueEvery == 0) {
+                workItem.setIssue(new Issue(sentence(random) + " #" + i));
+            }
+            workItemRows.add(workItem);
+        }
+        workItemRows = save(context.getBean(WorkItemRepository.class)::save, workItemRows);
+
+        teamIds = teamRows.stream().mapToLong(Team::getId).toArray();
+        userNumbers = userRows.stream().mapToLong(User::getUserNumber).toArray();
+        workItemIds = workItemRows.stream().mapToLong(WorkItem::getId).toArray();
+        issuePages = Math.max(1, (workItemRows.size() / issueEvery) / ReadBenchmarks.PAGE_SIZE);
+
+        userPairNumbers = new long[userRows.size() / 2][];
+        movingWorkItemIds = new long[userPairNumbers.length];
+        for (int i = 0; i < userPairNumbers.length; i++) {
+            userPairNumbers[i] = new long[] { userNumbers[2 * i], userNumbers[2 * i + 1] };
+            movingWorkItemIds[i] = workItemIds[2 * i * workItemsPerUser];
+        }
+        teamPairIds = new long[teams / 2][];
+        movingUserIds = new long[teamPairIds.length];
+        for (int i = 0; i < teamPairIds.length; i++) {
+            teamPairIds[i] = new long[] { teamIds[2 * i], teamIds[2 * i + 1] };
+            movingUserIds[i] = userRows.get(2 * i * usersPerTeam).getId();
+        }
+    }
+
+    private static String sentence(Random random) {
+        return WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+                + WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static <T> List<T> save(Function<List<T>, Iterable<T>> repository, List<T> rows) {
+        List<T> saved = new ArrayList<>(rows.size());
+        for (int from = 0; from < rows.size(); from += SEED_CHUNK) {
+            repository.apply(rows.subList(from, Math.min(rows.size(), from + SEED_CHUNK))).forEach(saved::add);
+        }
+        return saved;
+    }
+
+    // The first search starts loading the in-memory indexes, measure only once they are in use
+    private void awaitSearchIndexes() throws InterruptedException {
+        DescriptionIndex descriptionIndex = context.getBean(DescriptionIndex.class);
+        UserSearchIndex userSearchIndex = context.getBean(UserSearchIndex.class);
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(5);
+        while (!(descriptionIndex.isWarm(Issue.class) & userSearchIndex.isWarm())) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Search indexes did not load within 5 minutes");
+            }
+            Thread.sleep(100);
+        }
+    }
+}
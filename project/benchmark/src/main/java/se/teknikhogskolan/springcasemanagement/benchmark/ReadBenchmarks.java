@@ -0,0 +1,56 @@
+package se.teknikhogskolan.springcasemanagement.benchmark;
+
+import static se.teknikhogskolan.springcasemanagement.benchmark.CaseManagementState.pick;
+import static se.teknikhogskolan.springcasemanagement.benchmark.CaseManagementState.word;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Slice;
+
+import se.teknikhogskolan.springcasemanagement.model.Issue;
+import se.teknikhogskolan.springcasemanagement.model.User;
+import se.teknikhogskolan.springcasemanagement.model.WorkItem;
+
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReadBenchmarks {
+    static final int PAGE_SIZE = 50;
+
+    @Benchmark
+    public WorkItem getById(CaseManagementState state) {
+        return state.workItemService.getById(pick(state.workItemIds));
+    }
+
+    @Benchmark
+    public User getByUserNumber(CaseManagementState state) {
+        return state.userService.getByUserNumber(pick(state.userNumbers));
+    }
+
+    @Benchmark
+    public Collection<WorkItem> getByTeamId(CaseManagementState state) {
+        return state.workItemService.getByTeamId(pick(state.teamIds));
+    }
+
+    @Benchmark
+    public List<Issue> search(CaseManagementState state) {
+        return state.issueService.findMatching(word());
+    }
+
+    @Benchmark
+    public Slice<Issue> getAllByPage(CaseManagementState state) {
+        return state.issueService.getAllByPage(ThreadLocalRandom.current().nextInt(state.issuePages), PAGE_SIZE);
+    }
+}
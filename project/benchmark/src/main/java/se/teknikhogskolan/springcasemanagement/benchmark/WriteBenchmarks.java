@@ -0,0 +1,44 @@
+package se.teknikhogskolan.springcasemanagement.benchmark;
+
+import static se.teknikhogskolan.springcasemanagement.benchmark.CaseManagementState.pick;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.teknikhogskolan.springcasemanagement.model.Team;
+import se.teknikhogskolan.springcasemanagement.model.WorkItem;
+
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WriteBenchmarks {
+    private static final WorkItem.Status[] STATUSES = WorkItem.Status.values();
+
+    @Benchmark
+    public WorkItem setStatus(CaseManagementState state) {
+        return state.workItemService.setStatus(pick(state.workItemIds),
+                STATUSES[ThreadLocalRandom.current().nextInt(STATUSES.length)]);
+    }
+
+    @Benchmark
+    public WorkItem setUser(CaseManagementState state) {
+        int pair = ThreadLocalRandom.current().nextInt(state.movingWorkItemIds.length);
+        return state.workItemService.setUser(pick(state.userPairNumbers[pair]), state.movingWorkItemIds[pair]);
+    }
+
+    @Benchmark
+    public Team addUserToTeam(CaseManagementState state) {
+        int pair = ThreadLocalRandom.current().nextInt(state.movingUserIds.length);
+        return state.teamService.addUserToTeam(pick(state.teamPairIds[pair]), state.movingUserIds[pair]);
+    }
+}
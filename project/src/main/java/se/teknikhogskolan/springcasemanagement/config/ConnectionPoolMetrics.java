@@ -0,0 +1,96 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.zaxxer.hikari.metrics.MetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+// Shared by the primary and replica pools; gauges and counters are totals over all of them
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final List<PoolStats> pools = new CopyOnWriteArrayList<>();
+
+    @Override
+    public MetricsTracker create(String poolName, PoolStats poolStats) {
+        pools.add(poolStats);
+        return new MetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                checkouts.increment();
+                waitNanos.add(elapsedAcquiredNanos);
+                maxWaitNanos.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillis.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+
+            @Override
+            public void close() {
+                pools.remove(poolStats);
+            }
+        };
+    }
+
+    public int getActiveConnections() {
+        return pools.stream().mapToInt(PoolStats::getActiveConnections).sum();
+    }
+
+    public int getIdleConnections() {
+        return pools.stream().mapToInt(PoolStats::getIdleConnections).sum();
+    }
+
+    public int getTotalConnections() {
+        return pools.stream().mapToInt(PoolStats::getTotalConnections).sum();
+    }
+
+    public int getPendingThreads() {
+        return pools.stream().mapToInt(PoolStats::getPendingThreads).sum();
+    }
+
+    public long getCheckoutCount() {
+        return checkouts.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    public double getAverageWaitMillis() {
+        long count = checkouts.sum();
+        return count == 0 ? 0 : (double) waitNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxWaitMillis() {
+        return (double) maxWaitNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getAverageUsageMillis() {
+        long count = checkouts.sum();
+        return count == 0 ? 0 : (double) usageMillis.sum() / count;
+    }
+
+    public void clear() {
+        checkouts.reset();
+        waitNanos.reset();
+        maxWaitNanos.reset();
+        usageMillis.reset();
+        timeouts.reset();
+    }
+}
@@ -0,0 +1,13 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import org.springframework.util.ClassUtils;
+
+// The event classes extend jdk.jfr.Event, which Java 8 has from update 262 on. Only classes that check AVAILABLE
+// first may refer to them.
+final class FlightRecorder {
+
+    static final boolean AVAILABLE = ClassUtils.isPresent("jdk.jfr.Event", FlightRecorder.class.getClassLoader());
+
+    private FlightRecorder() {
+    }
+}
@@ -0,0 +1,65 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+
+// Emits a ServiceOperationEvent per call. Without a recording that enables the event, a call costs an allocation
+// the JIT can usually remove and a flag check.
+class FlightRecorderInterceptor implements MethodInterceptor {
+
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final Map<Method, String[]> parameterNamesByMethod = new ConcurrentHashMap<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        ServiceOperationEvent event = new ServiceOperationEvent();
+        if (!event.isEnabled()) {
+            return invocation.proceed();
+        }
+        Throwable failure = null;
+        SqlStatistics sql = SqlStatistics.begin();
+        event.begin();
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            event.end();
+            sql.close();
+            if (event.shouldCommit()) {
+                Class<?> type = invocation.getThis() == null ? invocation.getMethod().getDeclaringClass()
+                        : AopUtils.getTargetClass(invocation.getThis());
+                event.operation = type.getSimpleName() + "." + invocation.getMethod().getName();
+                event.entityIds = entityIds(invocation.getMethod(), invocation.getArguments());
+                event.outcome = failure == null ? "OK" : "FAILED";
+                event.exception = failure == null ? null : failure.getClass();
+                event.statements = sql.getStatements();
+                event.rows = sql.getRows();
+                event.commit();
+            }
+        }
+    }
+
+    private String entityIds(Method method, Object[] arguments) {
+        String[] names = parameterNamesByMethod.computeIfAbsent(method, key -> {
+            String[] discovered = parameterNames.getParameterNames(key);
+            return discovered == null ? new String[key.getParameterCount()] : discovered;
+        });
+        StringJoiner ids = new StringJoiner(", ");
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] instanceof Long || arguments[i] instanceof Integer) {
+                ids.add((names[i] == null ? "arg" + i : names[i]) + "=" + arguments[i]);
+            }
+        }
+        return ids.toString();
+    }
+}
@@ -1,47 +1,250 @@
 package se.teknikhogskolan.springcasemanagement.config;
 
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.SharedCacheMode;
 import javax.sql.DataSource;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.repository.Repository;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.Database;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.util.ClassUtils;
+
+import se.teknikhogskolan.springcasemanagement.model.PooledTableIdGenerator;
+import se.teknikhogskolan.springcasemanagement.service.IssueService;
+import se.teknikhogskolan.springcasemanagement.service.OptimisticLockRetryInterceptor;
+import se.teknikhogskolan.springcasemanagement.service.RetryOnOptimisticLock;
+import se.teknikhogskolan.springcasemanagement.service.ServiceMetrics;
+import se.teknikhogskolan.springcasemanagement.service.ServiceMetricsInterceptor;
+import se.teknikhogskolan.springcasemanagement.service.TeamService;
+import se.teknikhogskolan.springcasemanagement.service.UserService;
+import se.teknikhogskolan.springcasemanagement.service.WorkItemService;
+import se.teknikhogskolan.springcasemanagement.tracing.FileSpanExporter;
+import se.teknikhogskolan.springcasemanagement.tracing.InMemorySpanExporter;
+import se.teknikhogskolan.springcasemanagement.tracing.Tracer;
 
 @Configuration
 @EnableJpaRepositories("se.teknikhogskolan.springcasemanagement.repository")
 @EnableTransactionManagement
+@PropertySource({ "classpath:casemanagement.properties",
+        "classpath:casemanagement-${casemanagement.database:mysql}.properties",
+        "classpath:casemanagement-${casemanagement.workload:oltp}.properties" })
 public class InfrastructureConfig {
+    private static final String DATASOURCE_PREFIX = "casemanagement.datasource.";
+    private static final String REPLICA_DATASOURCE_PREFIX = "casemanagement.replica.datasource.";
+    private static final Set<Class<?>> METERED_SERVICES = new HashSet<>(
+            Arrays.asList(WorkItemService.class, UserService.class, TeamService.class, IssueService.class));
+
+    @Autowired
+    private ConfigurableEnvironment environment;
+
     @Bean
+    @Primary
     public DataSource dataSource() {
+        // Traced beneath the lazy proxy, which only checks a connection out once a statement needs it
+        DataSource dataSource = routingDataSource().hasReplicas() ? routingDataSource() : primaryDataSource();
+        if (tracer().isEnabled()) {
+            dataSource = new TracingDataSource(dataSource, tracer());
+        }
+        if (routingDataSource().hasReplicas()) {
+            dataSource = new LazyConnectionDataSourceProxy(dataSource);
+        }
+        // Wrapping proxies every JDBC call down to each ResultSet.next(), so it is left out unless asked for
+        boolean collectQueryStatistics = environment.getProperty("casemanagement.sql.statistics", Boolean.class, false);
+        if (sqlBudgetAction() == SqlBudgetInterceptor.Action.OFF && !collectQueryStatistics) {
+            return dataSource;
+        }
+        return new InstrumentedDataSource(dataSource, collectQueryStatistics ? queryStatistics() : null);
+    }
+
+    @Bean
+    public HikariDataSource primaryDataSource() {
 
-        HikariConfig config = new HikariConfig();
-        config.setDriverClassName("com.mysql.jdbc.Driver");
-        config.setJdbcUrl("jdbc:mysql://localhost:3306/casemanagement");
-        config.setUsername("root");
-        config.setPassword("root");
+        HikariConfig config = new HikariConfig(propertiesWithPrefix(DATASOURCE_PREFIX));
+        config.setMetricsTrackerFactory(connectionPoolMetrics());
 
         return new HikariDataSource(config);
     }
 
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource() {
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        String[] urls = environment.getProperty("casemanagement.replica.jdbcUrls", String[].class, new String[0]);
+        for (int i = 0; i < urls.length; i++) {
+            Properties properties = propertiesWithPrefix(DATASOURCE_PREFIX);
+            properties.putAll(propertiesWithPrefix(REPLICA_DATASOURCE_PREFIX));
+            properties.setProperty("jdbcUrl", urls[i].trim());
+            properties.setProperty("poolName", properties.getProperty("poolName", "casemanagement") + "-replica-" + i);
+            HikariConfig config = new HikariConfig(properties);
+            config.setMetricsTrackerFactory(connectionPoolMetrics());
+            replicas.add(new HikariDataSource(config));
+        }
+
+        return new ReadWriteRoutingDataSource(primaryDataSource(), replicas);
+    }
+
+    @Bean
+    public ConnectionPoolMetrics connectionPoolMetrics() {
+        return new ConnectionPoolMetrics();
+    }
+
     @Bean
     public JpaTransactionManager transactionManager(EntityManagerFactory factory) {
-        return new JpaTransactionManager(factory);
+        return tracer().isEnabled() || flightRecorderEvents()
+                ? new InstrumentedTransactionManager(factory, tracer(), flightRecorderEvents())
+                : new JpaTransactionManager(factory);
+    }
+
+    @Bean(destroyMethod = "close")
+    public Tracer tracer() {
+        String exporter = environment.getProperty("casemanagement.tracing.exporter", "NONE");
+        double sampleRate = environment.getProperty("casemanagement.tracing.sample_rate", Double.class, 1.0);
+        switch (exporter) {
+        case "MEMORY":
+            return new Tracer(new InMemorySpanExporter(
+                    environment.getProperty("casemanagement.tracing.memory.capacity", Integer.class, 10000)),
+                    sampleRate);
+        case "FILE":
+            String file = environment.getProperty("casemanagement.tracing.file", "casemanagement-spans.jsonl");
+            try {
+                return new Tracer(new FileSpanExporter(Paths.get(file)), sampleRate);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not open the span file " + file, e);
+            }
+        case "NONE":
+            return new Tracer(null, 0);
+        default:
+            throw new IllegalArgumentException("Unknown casemanagement.tracing.exporter " + exporter);
+        }
+    }
+
+    // Ordered ahead of the transaction interceptor so that every attempt runs in a fresh transaction
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor optimisticLockRetryAdvisor() {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(RetryOnOptimisticLock.class),
+                new OptimisticLockRetryInterceptor());
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return advisor;
+    }
+
+    // Outside the retries, so that statements of failed attempts count too
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor sqlBudgetAdvisor() {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(meteredServiceMethods(),
+                new SqlBudgetInterceptor(sqlBudgetAction(),
+                        environment.getProperty("casemanagement.sql.budget.statements", Integer.class, 20)));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return advisor;
+    }
+
+    @Bean
+    public QueryStatistics queryStatistics() {
+        return new QueryStatistics(
+                environment.getProperty("casemanagement.sql.slow_query.threshold_ms", Long.class, 200L),
+                environment.getProperty("casemanagement.sql.slow_query.bind_sample_rate", Double.class, 0.0));
+    }
+
+    // Outside the transaction interceptor, so that statements flushed on commit belong to the service method
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor queryOriginAdvisor() {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(serviceAndRepositoryMethods(),
+                new QueryOriginInterceptor());
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 4);
+        return advisor;
+    }
+
+    // Inside the retries, so that every attempt is a span of its own
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor tracingAdvisor() {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(serviceAndRepositoryMethods(),
+                new TracingInterceptor(tracer()));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 3);
+        return advisor;
+    }
+
+    // Inside the retries, so that every attempt is an event of its own, and outside the transaction, so that the
+    // statements flushed on commit count
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor flightRecorderAdvisor() {
+        MethodInterceptor interceptor = flightRecorderEvents() ? new FlightRecorderInterceptor()
+                : MethodInvocation::proceed;
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(meteredServiceMethods(), interceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 5);
+        return advisor;
+    }
+
+    @Bean
+    public ServiceMetrics serviceMetrics() {
+        return new ServiceMetrics();
+    }
+
+    // Outermost, so that a call is timed with its retries and its transaction
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor serviceMetricsAdvisor() {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(meteredServiceMethods(),
+                new ServiceMetricsInterceptor(serviceMetrics()));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    @Bean(destroyMethod = "close")
+    public MetricsPublisher metricsPublisher() throws IOException {
+        return new MetricsPublisher(serviceMetrics(), queryStatistics(),
+                environment.getProperty(DATASOURCE_PREFIX + "poolName", "casemanagement"),
+                environment.getProperty("casemanagement.metrics.jmx", Boolean.class, false),
+                environment.getProperty("casemanagement.metrics.http.host", "127.0.0.1"),
+                environment.getProperty("casemanagement.metrics.http.port", Integer.class));
     }
 
     @Bean
     public JpaVendorAdapter jpaVendorAdapter() {
 
         HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter();
-        adapter.setDatabase(Database.MYSQL);
+        adapter.setDatabase(Database.valueOf(environment.getRequiredProperty("casemanagement.jpa.database")));
         adapter.setGenerateDdl(true);
 
         return adapter;
@@ -54,7 +257,83 @@ public class InfrastructureConfig {
         factory.setDataSource(dataSource());
         factory.setJpaVendorAdapter(jpaVendorAdapter());
         factory.setPackagesToScan("se.teknikhogskolan.springcasemanagement.model");
+        factory.setSharedCacheMode(SharedCacheMode.ENABLE_SELECTIVE);
+        factory.setJpaProperties(jpaProperties());
 
         return factory;
     }
+
+    private boolean flightRecorderEvents() {
+        return environment.getProperty("casemanagement.jfr.events", Boolean.class, true) && FlightRecorder.AVAILABLE;
+    }
+
+    // FAIL is checked after the transaction has committed, so the caller would see a failure for work already done
+    private SqlBudgetInterceptor.Action sqlBudgetAction() {
+        SqlBudgetInterceptor.Action action = environment.getProperty("casemanagement.sql.budget.action",
+                SqlBudgetInterceptor.Action.class, SqlBudgetInterceptor.Action.OFF);
+        String workload = environment.getProperty("casemanagement.workload", "oltp");
+        if (action == SqlBudgetInterceptor.Action.FAIL && !"test".equals(workload)) {
+            throw new IllegalStateException(
+                    "casemanagement.sql.budget.action=FAIL is only for the test workload, was " + workload);
+        }
+        return action;
+    }
+
+    private static Pointcut meteredServiceMethods() {
+        return new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return METERED_SERVICES.contains(ClassUtils.getUserClass(targetClass))
+                        && Modifier.isPublic(method.getModifiers()) && method.getDeclaringClass() != Object.class;
+            }
+        };
+    }
+
+    private static Pointcut serviceAndRepositoryMethods() {
+        Pointcut services = meteredServiceMethods();
+        return new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return Repository.class.isAssignableFrom(targetClass) ? method.getDeclaringClass() != Object.class
+                        : services.getMethodMatcher().matches(method, targetClass);
+            }
+        };
+    }
+
+    private Properties jpaProperties() {
+
+        Properties properties = new Properties();
+        properties.setProperty("hibernate.jdbc.batch_size",
+                environment.getProperty("casemanagement.jdbc.batch_size", "50"));
+        properties.setProperty(PooledTableIdGenerator.ALLOCATION_SIZE_SETTING,
+                environment.getProperty(PooledTableIdGenerator.ALLOCATION_SIZE_SETTING, "50"));
+        properties.setProperty("hibernate.jdbc.batch_versioned_data", "true");
+        properties.setProperty("hibernate.order_inserts", "true");
+        properties.setProperty("hibernate.order_updates", "true");
+        properties.setProperty("hibernate.cache.use_second_level_cache", "true");
+        properties.setProperty("hibernate.cache.region.factory_class",
+                "org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory");
+        properties.setProperty("net.sf.ehcache.configurationResourceName", "/ehcache.xml");
+        properties.setProperty("hibernate.generate_statistics",
+                environment.getProperty("casemanagement.hibernate.statistics", "false"));
+
+        return properties;
+    }
+
+    // Resolved through the environment so that system properties override the property files
+    private Properties propertiesWithPrefix(String prefix) {
+
+        Properties properties = new Properties();
+        environment.getPropertySources().forEach(source -> {
+            if (source instanceof EnumerablePropertySource) {
+                for (String name : ((EnumerablePropertySource<?>) source).getPropertyNames()) {
+                    if (name.startsWith(prefix)) {
+                        properties.setProperty(name.substring(prefix.length()), environment.getProperty(name));
+                    }
+                }
+            }
+        });
+
+        return properties;
+    }
 }
@@ -0,0 +1,153 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+// Feeds SqlStatistics and, when given, QueryStatistics. Every connection handed out counts once, every execute once
+// (a batch being one round trip) and every row a query result is advanced to once. An execute is timed until the
+// driver returns, fetching rows later is not.
+class InstrumentedDataSource extends DelegatingDataSource {
+
+    private final QueryStatistics queryStatistics;
+
+    InstrumentedDataSource(DataSource targetDataSource, QueryStatistics queryStatistics) {
+        super(targetDataSource);
+        this.queryStatistics = queryStatistics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return instrument(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return instrument(super.getConnection(username, password));
+    }
+
+    private Connection instrument(Connection connection) {
+        SqlStatistics.recordConnection();
+        return proxy(Connection.class, (method, args) -> {
+            Object result = invoke(connection, method, args);
+            String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+            if (result instanceof CallableStatement) {
+                return proxy(CallableStatement.class, new StatementHandler((Statement) result, sql));
+            } else if (result instanceof PreparedStatement) {
+                return proxy(PreparedStatement.class, new StatementHandler((Statement) result, sql));
+            } else if (result instanceof Statement) {
+                return proxy(Statement.class, new StatementHandler((Statement) result, null));
+            }
+            return result;
+        });
+    }
+
+    private final class StatementHandler implements Handler {
+        private final Statement target;
+        private final Map<Object, Object> binds;
+        private String sql;
+        private QueryStatistics.Query lastQuery;
+
+        private StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+            boolean captureBinds = sql != null && queryStatistics != null && queryStatistics.capturesBinds();
+            this.binds = captureBinds ? new LinkedHashMap<>() : null;
+        }
+
+        @Override
+        public Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            } else if (binds != null && name.startsWith("set") && args != null && args.length >= 2
+                    && method.getDeclaringClass() != Statement.class) {
+                binds.put(args[0], name.equals("setNull") ? null : args[1]);
+            } else if (binds != null && name.equals("clearParameters")) {
+                binds.clear();
+            }
+            Object result = invoke(target, method, args);
+            return name.equals("getResultSet") ? instrument((ResultSet) result, lastQuery) : result;
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            SqlStatistics.recordStatement();
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                sql = (String) args[0];
+            }
+            lastQuery = queryStatistics == null ? null : queryStatistics.query(QueryOrigin.current());
+            long start = System.nanoTime();
+            Object result = null;
+            try {
+                result = invoke(target, method, args);
+                return result instanceof ResultSet ? instrument((ResultSet) result, lastQuery) : result;
+            } finally {
+                if (lastQuery != null) {
+                    lastQuery.executed(System.nanoTime() - start, updatedRows(result), sql, binds);
+                }
+            }
+        }
+    }
+
+    private static ResultSet instrument(ResultSet resultSet, QueryStatistics.Query query) {
+        if (resultSet == null) {
+            return null;
+        }
+        return proxy(ResultSet.class, (method, args) -> {
+            Object result = invoke(resultSet, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                SqlStatistics.recordRow();
+                if (query != null) {
+                    query.row();
+                }
+            }
+            return result;
+        });
+    }
+
+    private static long updatedRows(Object result) {
+        long rows = 0;
+        if (result instanceof Number) {
+            rows = ((Number) result).longValue();
+        } else if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                rows += Math.max(count, 0);
+            }
+        } else if (result instanceof long[]) {
+            for (long count : (long[]) result) {
+                rows += Math.max(count, 0);
+            }
+        }
+        return rows;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.handle(method, args);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, invocationHandler));
+    }
+
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+}
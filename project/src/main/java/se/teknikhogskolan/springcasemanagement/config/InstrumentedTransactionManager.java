@@ -0,0 +1,78 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import se.teknikhogskolan.springcasemanagement.tracing.Span;
+import se.teknikhogskolan.springcasemanagement.tracing.Tracer;
+
+// Traces commits, which include the flush of the persistence context, and rollbacks. With flight recorder events on,
+// every transaction is a TransactionEvent; a transaction suspended for a new one completes after it.
+class InstrumentedTransactionManager extends JpaTransactionManager {
+
+    private final transient Tracer tracer;
+    private final transient ThreadLocal<Deque<Optional<TransactionRecording>>> recordings;
+
+    InstrumentedTransactionManager(EntityManagerFactory entityManagerFactory, Tracer tracer,
+            boolean flightRecorderEvents) {
+        super(entityManagerFactory);
+        this.tracer = tracer;
+        this.recordings = flightRecorderEvents ? ThreadLocal.withInitial(ArrayDeque::new) : null;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        TransactionRecording recording = recordings == null ? null
+                : TransactionRecording.begin(definition.getName(), definition.isReadOnly());
+        try {
+            super.doBegin(transaction, definition);
+        } catch (RuntimeException e) {
+            if (recording != null) {
+                recording.failed(e);
+                recording.end();
+            }
+            throw e;
+        }
+        if (recordings != null) {
+            // Pushed even when empty, so that every transaction begun pops its own
+            recordings.get().push(Optional.ofNullable(recording));
+        }
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        Optional<TransactionRecording> recording = recordings == null ? Optional.empty() : recordings.get().peek();
+        try (Span span = tracer.start("transaction.commit")) {
+            try {
+                super.doCommit(status);
+                recording.ifPresent(TransactionRecording::committed);
+            } catch (RuntimeException e) {
+                span.setError(e);
+                recording.ifPresent(current -> current.failed(e));
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        try (Span span = tracer.start("transaction.rollback")) {
+            super.doRollback(status);
+        }
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        super.doCleanupAfterCompletion(transaction);
+        if (recordings != null) {
+            recordings.get().pop().ifPresent(TransactionRecording::end);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import se.teknikhogskolan.springcasemanagement.service.ServiceMetrics;
+
+// Publishes the service metrics and query statistics as MXBeans and, when given a port, as text on
+// http://host:port/metrics. The endpoint has no authentication, so it should only listen where scrapers are trusted.
+public class MetricsPublisher implements Closeable {
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    private final List<ObjectName> objectNames = new ArrayList<>();
+    private final HttpServer httpServer;
+    private final ExecutorService httpExecutor;
+
+    public MetricsPublisher(ServiceMetrics metrics, QueryStatistics queryStatistics, String name, boolean jmx,
+            String httpHost, Integer httpPort) throws IOException {
+        if (jmx) {
+            register(metrics, "ServiceMetrics", name);
+            register(queryStatistics, "QueryStatistics", name);
+        }
+        if (httpPort == null) {
+            this.httpServer = null;
+            this.httpExecutor = null;
+        } else {
+            this.httpServer = HttpServer.create(new InetSocketAddress(httpHost, httpPort), 0);
+            this.httpExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name + "-metrics-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+            httpServer.createContext("/metrics", exchange -> respond(exchange,
+                    metrics.getReport() + queryStatistics.getReport()));
+            httpServer.setExecutor(httpExecutor);
+            httpServer.start();
+        }
+    }
+
+    public int getHttpPort() {
+        return httpServer == null ? -1 : httpServer.getAddress().getPort();
+    }
+
+    public InetSocketAddress getHttpAddress() {
+        return httpServer == null ? null : httpServer.getAddress();
+    }
+
+    @Override
+    public void close() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpExecutor.shutdownNow();
+        }
+        for (ObjectName objectName : objectNames) {
+            try {
+                mBeanServer.unregisterMBean(objectName);
+            } catch (JMException e) {
+                // Already gone
+            }
+        }
+        objectNames.clear();
+    }
+
+    private void register(Object mBean, String type, String name) {
+        try {
+            ObjectName objectName = new ObjectName("se.teknikhogskolan.springcasemanagement:type=" + type + ",name="
+                    + ObjectName.quote(name));
+            mBeanServer.registerMBean(mBean, objectName);
+            objectNames.add(objectName);
+        } catch (JMException e) {
+            close();
+            throw new IllegalStateException("Could not register " + type + " in JMX as " + name, e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String report) throws IOException {
+        byte[] body = report.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+// The repository method, or failing that the service method, running on this thread. Statements are attributed to
+// it, so that those flushed when a service transaction commits belong to the service method.
+final class QueryOrigin {
+
+    static final String UNKNOWN = "unknown";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private QueryOrigin() {
+    }
+
+    static String current() {
+        String origin = CURRENT.get();
+        return origin == null ? UNKNOWN : origin;
+    }
+
+    // Returns the origin to restore when the method returns
+    static String enter(String origin) {
+        String outer = CURRENT.get();
+        CURRENT.set(origin);
+        return outer;
+    }
+
+    static void exit(String outer) {
+        if (outer == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(outer);
+        }
+    }
+}
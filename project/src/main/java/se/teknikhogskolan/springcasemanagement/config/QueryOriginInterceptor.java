@@ -0,0 +1,39 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.ClassUtils;
+
+class QueryOriginInterceptor implements MethodInterceptor {
+
+    private final Map<Class<?>, String> typeNames = new ConcurrentHashMap<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Class<?> type = invocation.getThis() == null ? method.getDeclaringClass() : invocation.getThis().getClass();
+        String outer = QueryOrigin.enter(typeNames.computeIfAbsent(type, QueryOriginInterceptor::typeName)
+                + "." + method.getName());
+        try {
+            return invocation.proceed();
+        } finally {
+            QueryOrigin.exit(outer);
+        }
+    }
+
+    // Repositories are JDK proxies and are named after the repository interface they implement
+    static String typeName(Class<?> type) {
+        for (Class<?> candidate : ClassUtils.getAllInterfacesForClassAsSet(type)) {
+            if (Repository.class.isAssignableFrom(candidate)
+                    && !candidate.getName().startsWith("org.springframework.")) {
+                return candidate.getSimpleName();
+            }
+        }
+        return ClassUtils.getUserClass(type).getSimpleName();
+    }
+}
@@ -0,0 +1,206 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Executions, rows and time spent in the database per repository method (see QueryOrigin), and a log of statements
+// slower than the threshold. Bind values are logged for a sample of the slow statements only, since they can hold
+// personal data.
+public class QueryStatistics implements QueryStatisticsMXBean {
+    private static final int MAX_BIND_LENGTH = 50;
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryStatistics.class);
+
+    private final long slowQueryNanos;
+    private final double bindSampleRate;
+    private final ConcurrentMap<String, Query> queries = new ConcurrentHashMap<>();
+
+    // A negative threshold turns the slow-query log off
+    public QueryStatistics(long slowQueryThresholdMillis, double bindSampleRate) {
+        this.slowQueryNanos = slowQueryThresholdMillis < 0 ? Long.MAX_VALUE
+                : TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+        this.bindSampleRate = bindSampleRate;
+    }
+
+    boolean capturesBinds() {
+        return slowQueryNanos != Long.MAX_VALUE && bindSampleRate > 0;
+    }
+
+    Query query(String origin) {
+        Query query = queries.get(origin);
+        return query == null ? queries.computeIfAbsent(origin, Query::new) : query;
+    }
+
+    // Slowest in total first
+    @Override
+    public List<QuerySnapshot> getQueries() {
+        List<QuerySnapshot> snapshots = new ArrayList<>();
+        queries.values().forEach(query -> snapshots.add(query.snapshot()));
+        snapshots.sort(Comparator.comparingDouble(QuerySnapshot::getTotalMillis).reversed()
+                .thenComparing(QuerySnapshot::getOrigin));
+        return snapshots;
+    }
+
+    public QuerySnapshot getQuery(String origin) {
+        Query query = queries.get(origin);
+        return query == null ? null : query.snapshot();
+    }
+
+    // Prometheus text exposition format
+    @Override
+    public String getReport() {
+        List<QuerySnapshot> snapshots = getQueries();
+        StringBuilder report = new StringBuilder();
+        report.append("# TYPE casemanagement_sql_executions_total counter\n");
+        snapshots.forEach(snapshot -> append(report, "casemanagement_sql_executions_total", snapshot,
+                snapshot.getExecutions()));
+        report.append("# TYPE casemanagement_sql_rows_total counter\n");
+        snapshots.forEach(snapshot -> append(report, "casemanagement_sql_rows_total", snapshot, snapshot.getRows()));
+        report.append("# TYPE casemanagement_sql_slow_total counter\n");
+        snapshots.forEach(snapshot -> append(report, "casemanagement_sql_slow_total", snapshot,
+                snapshot.getSlowExecutions()));
+        report.append("# TYPE casemanagement_sql_seconds_total counter\n");
+        snapshots.forEach(snapshot -> append(report, "casemanagement_sql_seconds_total", snapshot,
+                snapshot.getTotalMillis() / 1000));
+        report.append("# TYPE casemanagement_sql_max_seconds gauge\n");
+        snapshots.forEach(snapshot -> append(report, "casemanagement_sql_max_seconds", snapshot,
+                snapshot.getMaxMillis() / 1000));
+        return report.toString();
+    }
+
+    @Override
+    public void reset() {
+        queries.clear();
+    }
+
+    private static void append(StringBuilder report, String metric, QuerySnapshot snapshot, Object value) {
+        report.append(metric).append("{origin=\"").append(snapshot.getOrigin()).append("\"} ").append(value)
+                .append('\n');
+    }
+
+    private static String describe(Map<Object, Object> binds) {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        binds.forEach((parameter, value) -> joiner.add(parameter + "=" + describe(value)));
+        return joiner.toString();
+    }
+
+    private static String describe(Object value) {
+        if (value == null) {
+            return "NULL";
+        } else if (value instanceof byte[]) {
+            return "<" + ((byte[]) value).length + " bytes>";
+        } else if (value instanceof CharSequence) {
+            String text = value.toString();
+            return "'" + (text.length() > MAX_BIND_LENGTH ? text.substring(0, MAX_BIND_LENGTH) + "..." : text) + "'";
+        }
+        return value.toString();
+    }
+
+    final class Query {
+        private final String origin;
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder slowExecutions = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Query(String origin) {
+            this.origin = origin;
+        }
+
+        // Binds are null unless captured
+        void executed(long elapsedNanos, long updatedRows, String sql, Map<Object, Object> binds) {
+            executions.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+            if (updatedRows > 0) {
+                rows.add(updatedRows);
+            }
+            if (elapsedNanos >= slowQueryNanos) {
+                slowExecutions.increment();
+                if (LOG.isWarnEnabled()) {
+                    boolean sampled = binds != null && ThreadLocalRandom.current().nextDouble() < bindSampleRate;
+                    LOG.warn("Slow query from {} took {} ms: {}{}", origin,
+                            TimeUnit.NANOSECONDS.toMillis(elapsedNanos), sql,
+                            sampled ? " with binds " + describe(binds) : "");
+                }
+            }
+        }
+
+        void row() {
+            rows.increment();
+        }
+
+        private QuerySnapshot snapshot() {
+            long count = executions.sum();
+            double total = millis(totalNanos.sum());
+            return new QuerySnapshot(origin, count, rows.sum(), slowExecutions.sum(), total,
+                    count == 0 ? 0 : total / count, millis(maxNanos.get()));
+        }
+
+        private double millis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+
+    public static final class QuerySnapshot {
+        private final String origin;
+        private final long executions;
+        private final long rows;
+        private final long slowExecutions;
+        private final double totalMillis;
+        private final double meanMillis;
+        private final double maxMillis;
+
+        private QuerySnapshot(String origin, long executions, long rows, long slowExecutions, double totalMillis,
+                double meanMillis, double maxMillis) {
+            this.origin = origin;
+            this.executions = executions;
+            this.rows = rows;
+            this.slowExecutions = slowExecutions;
+            this.totalMillis = totalMillis;
+            this.meanMillis = meanMillis;
+            this.maxMillis = maxMillis;
+        }
+
+        public String getOrigin() {
+            return origin;
+        }
+
+        public long getExecutions() {
+            return executions;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getSlowExecutions() {
+            return slowExecutions;
+        }
+
+        public double getTotalMillis() {
+            return totalMillis;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import java.util.List;
+
+import se.teknikhogskolan.springcasemanagement.config.QueryStatistics.QuerySnapshot;
+
+public interface QueryStatisticsMXBean {
+
+    List<QuerySnapshot> getQueries();
+
+    String getReport();
+
+    void reset();
+}
@@ -0,0 +1,63 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Sends read-only transactions round-robin to the replicas and everything else to the primary. The lookup happens
+// when a connection is first requested, so this must sit behind a LazyConnectionDataSourceProxy: the transaction
+// manager asks for a connection before the read-only flag of the new transaction is published.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final String PRIMARY = "primary";
+
+    private final List<DataSource> replicas;
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<? extends DataSource> replicas) {
+        this.replicas = new ArrayList<>(replicas);
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            replicaKeys.add("replica-" + i);
+            targets.put(replicaKeys.get(i), replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    public boolean hasReplicas() {
+        return !replicaKeys.isEmpty();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!replicaKeys.isEmpty() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !ReadYourWrites.hasWritten()) {
+            return replicaKeys.get(Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.size()));
+        }
+        ReadYourWrites.recordWrite();
+        return PRIMARY;
+    }
+
+    // The replica pools are created for and owned by this data source, the primary is managed on its own
+    @Override
+    public void close() throws IOException {
+        for (DataSource replica : replicas) {
+            if (replica instanceof Closeable) {
+                ((Closeable) replica).close();
+            }
+        }
+    }
+}
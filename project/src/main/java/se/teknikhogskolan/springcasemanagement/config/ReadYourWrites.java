@@ -0,0 +1,69 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import java.util.function.Supplier;
+
+// Marks a unit of work, typically one request, in which reads must see the unit's own writes. Once a
+// read-write transaction has run inside the scope, read-only transactions in it are routed to the primary instead
+// of a possibly lagging replica. Scopes nest; only the outermost one resets the state on close. Work handed to
+// another thread joins the scope through wrap.
+public final class ReadYourWrites implements AutoCloseable {
+
+    private static final ThreadLocal<ReadYourWrites> CURRENT = new ThreadLocal<>();
+
+    private final boolean outermost;
+    private volatile boolean wrote;
+
+    private ReadYourWrites(boolean outermost) {
+        this.outermost = outermost;
+    }
+
+    public static ReadYourWrites begin() {
+        if (CURRENT.get() != null) {
+            return new ReadYourWrites(false);
+        }
+        ReadYourWrites scope = new ReadYourWrites(true);
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    // Runs the task inside the scope open here, if any, so its reads see the scope's writes and its writes count for
+    // the scope
+    public static <T> Supplier<T> wrap(Supplier<T> task) {
+        ReadYourWrites scope = CURRENT.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            ReadYourWrites outer = CURRENT.get();
+            CURRENT.set(scope);
+            try {
+                return task.get();
+            } finally {
+                if (outer == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(outer);
+                }
+            }
+        };
+    }
+
+    static void recordWrite() {
+        ReadYourWrites scope = CURRENT.get();
+        if (scope != null) {
+            scope.wrote = true;
+        }
+    }
+
+    static boolean hasWritten() {
+        ReadYourWrites scope = CURRENT.get();
+        return scope != null && scope.wrote;
+    }
+
+    @Override
+    public void close() {
+        if (outermost) {
+            CURRENT.remove();
+        }
+    }
+}
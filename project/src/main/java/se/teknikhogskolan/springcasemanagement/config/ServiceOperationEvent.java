@@ -0,0 +1,37 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("se.teknikhogskolan.springcasemanagement.ServiceOperation")
+@Label("Service Operation")
+@Description("A call of a public service method, retries being calls of their own")
+@Category("Case Management")
+@StackTrace(false)
+public final class ServiceOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Entity Ids")
+    @Description("The numeric arguments of the call, by parameter name")
+    String entityIds;
+
+    @Label("Outcome")
+    @Description("OK or FAILED")
+    String outcome;
+
+    @Label("Exception")
+    @Description("The exception a failed call threw")
+    Class<?> exception;
+
+    @Label("Statements")
+    long statements;
+
+    @Label("Rows")
+    long rows;
+}
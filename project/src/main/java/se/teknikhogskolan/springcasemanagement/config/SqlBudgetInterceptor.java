@@ -0,0 +1,57 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import java.lang.reflect.Method;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import se.teknikhogskolan.springcasemanagement.service.SqlBudget;
+
+// Checked once the call has returned, so a write over budget has already been committed. FAIL is for tests only.
+public class SqlBudgetInterceptor implements MethodInterceptor {
+    public enum Action {
+        OFF, LOG, FAIL
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(SqlBudgetInterceptor.class);
+
+    private final Action action;
+    private final int defaultStatements;
+
+    public SqlBudgetInterceptor(Action action, int defaultStatements) {
+        this.action = action;
+        this.defaultStatements = defaultStatements;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (action == Action.OFF) {
+            return invocation.proceed();
+        }
+        Object result;
+        SqlStatistics sql = SqlStatistics.begin();
+        try {
+            result = invocation.proceed();
+        } finally {
+            sql.close();
+        }
+
+        Method method = invocation.getThis() == null ? invocation.getMethod()
+                : AopUtils.getMostSpecificMethod(invocation.getMethod(), invocation.getThis().getClass());
+        SqlBudget budget = AnnotationUtils.findAnnotation(method, SqlBudget.class);
+        int statements = budget == null ? defaultStatements : budget.statements();
+        if (sql.getStatements() > statements) {
+            String message = String.format("%s.%s used %s, over its budget of %d statements",
+                    method.getDeclaringClass().getSimpleName(), method.getName(), sql, statements);
+            if (action == Action.FAIL) {
+                throw new IllegalStateException(message);
+            }
+            LOG.warn(message);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,72 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+// Counts the SQL statements, result rows and connections used on this thread while the scope is open. Scopes nest
+// and every open scope sees what its inner scopes count, so a test can wrap a service call that opens its own.
+//
+//     try (SqlStatistics sql = SqlStatistics.begin()) {
+//         workItemService.getByTeamId(teamId);
+//         assertEquals(1, sql.getStatements());
+//     }
+public final class SqlStatistics implements AutoCloseable {
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private final SqlStatistics outer;
+    private long statements;
+    private long rows;
+    private long connections;
+
+    private SqlStatistics(SqlStatistics outer) {
+        this.outer = outer;
+    }
+
+    public static SqlStatistics begin() {
+        SqlStatistics scope = new SqlStatistics(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    static void recordStatement() {
+        for (SqlStatistics scope = CURRENT.get(); scope != null; scope = scope.outer) {
+            scope.statements++;
+        }
+    }
+
+    static void recordRow() {
+        for (SqlStatistics scope = CURRENT.get(); scope != null; scope = scope.outer) {
+            scope.rows++;
+        }
+    }
+
+    static void recordConnection() {
+        for (SqlStatistics scope = CURRENT.get(); scope != null; scope = scope.outer) {
+            scope.connections++;
+        }
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getConnections() {
+        return connections;
+    }
+
+    @Override
+    public void close() {
+        if (outer == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(outer);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return statements + " statements, " + rows + " rows, " + connections + " connections";
+    }
+}
@@ -0,0 +1,46 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import se.teknikhogskolan.springcasemanagement.tracing.Span;
+import se.teknikhogskolan.springcasemanagement.tracing.Tracer;
+
+// Times the checkout of a connection from the pool
+class TracingDataSource extends DelegatingDataSource {
+
+    private final Tracer tracer;
+
+    TracingDataSource(DataSource targetDataSource, Tracer tracer) {
+        super(targetDataSource);
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        try (Span span = tracer.start("connection.acquire")) {
+            try {
+                return super.getConnection();
+            } catch (SQLException | RuntimeException e) {
+                span.setError(e);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        try (Span span = tracer.start("connection.acquire")) {
+            try {
+                return super.getConnection(username, password);
+            } catch (SQLException | RuntimeException e) {
+                span.setError(e);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import se.teknikhogskolan.springcasemanagement.tracing.Span;
+import se.teknikhogskolan.springcasemanagement.tracing.Tracer;
+
+// One span per service or repository call, named like the query origins, e.g. UserRepository.findByTeamId
+class TracingInterceptor implements MethodInterceptor {
+
+    private final Tracer tracer;
+    // By type first: CrudRepository methods such as findOne are one Method shared by every repository
+    private final Map<Class<?>, Map<Method, String>> spanNames = new ConcurrentHashMap<>();
+
+    TracingInterceptor(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (!tracer.isEnabled()) {
+            return invocation.proceed();
+        }
+        try (Span span = tracer.start(spanName(invocation))) {
+            try {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                span.setError(e);
+                throw e;
+            }
+        }
+    }
+
+    private String spanName(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        Class<?> type = invocation.getThis() == null ? method.getDeclaringClass() : invocation.getThis().getClass();
+        Map<Method, String> names = spanNames.get(type);
+        if (names == null) {
+            names = spanNames.computeIfAbsent(type, key -> new ConcurrentHashMap<>());
+        }
+        String name = names.get(method);
+        if (name == null) {
+            name = names.computeIfAbsent(method, key -> QueryOriginInterceptor.typeName(type) + "." + key.getName());
+        }
+        return name;
+    }
+}
@@ -0,0 +1,37 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("se.teknikhogskolan.springcasemanagement.Transaction")
+@Label("Transaction")
+@Category("Case Management")
+@StackTrace(false)
+public final class TransactionEvent extends Event {
+
+    @Label("Name")
+    String name;
+
+    @Label("Read Only")
+    boolean readOnly;
+
+    @Label("Outcome")
+    @Description("COMMITTED, ROLLED_BACK or FAILED, when beginning or committing threw")
+    String outcome;
+
+    @Label("Exception")
+    Class<?> exception;
+
+    @Label("Statements")
+    long statements;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Connections")
+    long connections;
+}
@@ -0,0 +1,50 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+// A TransactionEvent with the SQL statistics of its transaction, from begin to completion
+final class TransactionRecording {
+
+    private final TransactionEvent event;
+    private final SqlStatistics sql;
+    private String outcome = "ROLLED_BACK";
+    private Class<?> exception;
+
+    private TransactionRecording(TransactionEvent event, SqlStatistics sql) {
+        this.event = event;
+        this.sql = sql;
+    }
+
+    // Null when no recording enables the event
+    static TransactionRecording begin(String name, boolean readOnly) {
+        TransactionEvent event = new TransactionEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.name = name;
+        event.readOnly = readOnly;
+        TransactionRecording recording = new TransactionRecording(event, SqlStatistics.begin());
+        event.begin();
+        return recording;
+    }
+
+    void committed() {
+        outcome = "COMMITTED";
+    }
+
+    void failed(Throwable error) {
+        outcome = "FAILED";
+        exception = error.getClass();
+    }
+
+    void end() {
+        event.end();
+        sql.close();
+        if (event.shouldCommit()) {
+            event.outcome = outcome;
+            event.exception = exception;
+            event.statements = sql.getStatements();
+            event.rows = sql.getRows();
+            event.connections = sql.getConnections();
+            event.commit();
+        }
+    }
+}
@@ -1,16 +1,30 @@
 package se.teknikhogskolan.springcasemanagement.model;
 
+import java.lang.reflect.Field;
+
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.ManyToOne;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.OneToMany;
+import javax.persistence.OneToOne;
 
-import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 @MappedSuperclass
 public abstract class AbstractEntity {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "pooled_entity_ids")
+    @GenericGenerator(name = "pooled_entity_ids",
+            strategy = "se.teknikhogskolan.springcasemanagement.model.PooledTableIdGenerator",
+            parameters = {
+                    @Parameter(name = "table_name", value = "entity_ids"),
+                    @Parameter(name = "prefer_entity_table_as_segment_value", value = "true"),
+                    @Parameter(name = "optimizer", value = "pooled-lo"),
+                    @Parameter(name = "increment_size", value = "50") })
     private Long id;
 
     public Long getId() {
@@ -19,6 +33,17 @@ public abstract class AbstractEntity {
 
     @Override
     public String toString() {
-        return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
+        return new ReflectionToStringBuilder(this, ToStringStyle.JSON_STYLE) {
+            @Override
+            protected boolean accept(Field field) {
+                return super.accept(field) && !isAssociation(field);
+            }
+        }.toString();
+    }
+
+    // Associations are lazy and may be detached, so they are left out of toString
+    private static boolean isAssociation(Field field) {
+        return field.isAnnotationPresent(OneToOne.class) || field.isAnnotationPresent(ManyToOne.class)
+                || field.isAnnotationPresent(OneToMany.class);
     }
 }
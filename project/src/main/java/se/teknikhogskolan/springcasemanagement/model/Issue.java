@@ -1,13 +1,22 @@
 package se.teknikhogskolan.springcasemanagement.model;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.OneToOne;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = @Index(name = "idx_issue_description", columnList = "description"))
 public class Issue extends AbstractEntity {
 
-    @OneToOne(fetch = FetchType.EAGER, mappedBy = "issue")
+    @OneToOne(fetch = FetchType.LAZY, mappedBy = "issue")
     private WorkItem workItem;
     private String description;
     private boolean active;
@@ -0,0 +1,24 @@
+package se.teknikhogskolan.springcasemanagement.model;
+
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+public class PooledTableIdGenerator extends TableGenerator {
+
+    public static final String ALLOCATION_SIZE_SETTING = "casemanagement.id.allocation_size";
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Object allocationSize = serviceRegistry.getService(ConfigurationService.class).getSettings()
+                .get(ALLOCATION_SIZE_SETTING);
+        if (allocationSize != null) {
+            params.setProperty(INCREMENT_PARAM, allocationSize.toString());
+        }
+        super.configure(type, params, serviceRegistry);
+    }
+}
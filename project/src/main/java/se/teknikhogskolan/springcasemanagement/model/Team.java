@@ -3,21 +3,42 @@ package se.teknikhogskolan.springcasemanagement.model;
 import java.util.ArrayList;
 import java.util.Collection;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToMany;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
+@NamedEntityGraph(name = "Team.users", attributeNodes = @NamedAttributeNode("users"))
 public class Team extends AbstractEntity {
 
+    @NaturalId(mutable = true)
     @Column(unique = true)
     private String name;
     private boolean active;
 
-    @OneToMany(mappedBy = "team", fetch = FetchType.EAGER)
+    @Version
+    private long version;
+
+    @OneToMany(mappedBy = "team", fetch = FetchType.LAZY)
     private Collection<User> users;
 
+    public enum FetchPlan {
+        DEFAULT, WITH_USERS
+    }
+
     protected Team() {
     }
 
@@ -2,15 +2,35 @@ package se.teknikhogskolan.springcasemanagement.model;
 
 import java.util.Collection;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
+@Table(indexes = @Index(name = "idx_user_team_active", columnList = "team_id, active"))
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "User.team", attributeNodes = @NamedAttributeNode("team")),
+        @NamedEntityGraph(name = "User.workItems", attributeNodes = @NamedAttributeNode("workItems")) })
 public class User extends AbstractEntity {
 
+    @NaturalId(mutable = true)
     @Column(unique = true)
     private Long userNumber;
 
@@ -21,14 +41,21 @@ public class User extends AbstractEntity {
 
     private String lastName;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Team team;
     
-    @OneToMany(mappedBy = "user", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     private Collection<WorkItem> workItems;
 
     private boolean active;
 
+    @Version
+    private long version;
+
+    public enum FetchPlan {
+        DEFAULT, WITH_TEAM, WITH_WORK_ITEMS
+    }
+
     protected User() {
     }
 
@@ -3,13 +3,22 @@ package se.teknikhogskolan.springcasemanagement.model;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToOne;
-
-import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.apache.commons.lang3.builder.ToStringStyle;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_workitem_status_id", columnList = "status, id"),
+        @Index(name = "idx_workitem_user_status", columnList = "user_id, status"),
+        @Index(name = "idx_workitem_issue", columnList = "issue_id") })
+@NamedEntityGraph(name = "WorkItem.issueAndUser", attributeNodes = {
+        @NamedAttributeNode("issue"), @NamedAttributeNode("user") })
 public class WorkItem extends AbstractEntity {
 
     @Column(nullable = false, unique = true)
@@ -17,16 +26,23 @@ public class WorkItem extends AbstractEntity {
 
     private Status status = Status.UNSTARTED;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @Version
+    private long version;
+
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Issue issue;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private User user;
 
     public enum Status {
         UNSTARTED, STARTED, DONE
     }
 
+    public enum FetchPlan {
+        DEFAULT, WITH_ISSUE_AND_USER
+    }
+
     public WorkItem(String description) {
         this.description = description;
     }
@@ -100,11 +116,6 @@ public class WorkItem extends AbstractEntity {
         return true;
     }
 
-    @Override
-    public String toString() {
-        return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
-    }
-
     public int compareTo(WorkItem other) {
         if (null != getId() && null != other.getId()) {
             if (getId() > other.getId()) return 1;
@@ -0,0 +1,29 @@
+package se.teknikhogskolan.springcasemanagement.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+final class BatchInserts {
+
+    private BatchInserts() {}
+
+    // Flushes and clears the persistence context every batch size entities, so a large batch goes out as full JDBC
+    // batches without the session growing or dirty checking everything inserted so far. Anything the caller loaded
+    // earlier in the transaction is detached as well, and the returned entities are detached.
+    static <T> List<T> persist(EntityManager entityManager, List<T> entities, int batchSize) {
+        List<T> persisted = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            entityManager.persist(entity);
+            persisted.add(entity);
+            if (batchSize > 0 && persisted.size() % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return persisted;
+    }
+}
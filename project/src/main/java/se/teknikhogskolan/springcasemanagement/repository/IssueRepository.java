@@ -1,13 +1,23 @@
 package se.teknikhogskolan.springcasemanagement.repository;
 
+import java.util.List;
+
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.repository.CrudRepository;
 import se.teknikhogskolan.springcasemanagement.model.Issue;
 
-public interface IssueRepository extends CrudRepository<Issue, Long> {
+public interface IssueRepository extends CrudRepository<Issue, Long>, IssueRepositoryCustom {
+
+    <S extends Issue> S saveAndFlush(S issue);
+
+    void flush();
 
     Issue findByDescription(String description);
 
+    List<Issue> findByDescriptionContains(String text);
+
     Slice<Issue> findAll(Pageable pageable);
+
+    List<Issue> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
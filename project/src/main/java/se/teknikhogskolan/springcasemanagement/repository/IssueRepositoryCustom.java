@@ -0,0 +1,10 @@
+package se.teknikhogskolan.springcasemanagement.repository;
+
+import java.util.stream.Stream;
+
+import se.teknikhogskolan.springcasemanagement.model.Issue;
+
+public interface IssueRepositoryCustom {
+
+    Stream<Issue> streamAll();
+}
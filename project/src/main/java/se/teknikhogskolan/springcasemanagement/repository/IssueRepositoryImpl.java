@@ -0,0 +1,30 @@
+package se.teknikhogskolan.springcasemanagement.repository;
+
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import se.teknikhogskolan.springcasemanagement.model.Issue;
+
+@Transactional(propagation = Propagation.MANDATORY, readOnly = true)
+public class IssueRepositoryImpl implements IssueRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${casemanagement.stream.fetch_size:500}")
+    private int fetchSize;
+
+    @Override
+    public Stream<Issue> streamAll() {
+        Session session = entityManager.unwrap(Session.class);
+        return ScrollingStreams.stream(session, session.createQuery("select i from Issue i order by i.id", Issue.class),
+                fetchSize);
+    }
+}
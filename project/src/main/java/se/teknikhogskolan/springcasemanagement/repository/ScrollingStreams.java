@@ -0,0 +1,62 @@
+package se.teknikhogskolan.springcasemanagement.repository;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+final class ScrollingStreams {
+
+    private static final int DEFAULT_CLEAR_INTERVAL = 1000;
+
+    private ScrollingStreams() {}
+
+    // Rows are detached from the session every fetch size rows, so the stream must be consumed inside a transaction
+    // that has nothing else pending in its persistence context.
+    static <T> Stream<T> stream(Session session, Query<T> query, int fetchSize) {
+        ScrollableResults results = query.setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        int clearInterval = fetchSize > 0 ? fetchSize : DEFAULT_CLEAR_INTERVAL;
+
+        Iterator<T> iterator = new Iterator<T>() {
+
+            private int rows;
+            private Boolean hasNext;
+
+            @Override
+            public boolean hasNext() {
+                if (hasNext == null) {
+                    if (rows > 0 && rows % clearInterval == 0) {
+                        session.clear();
+                    }
+                    hasNext = results.next();
+                }
+                return hasNext;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                hasNext = null;
+                rows++;
+                return (T) results.get(0);
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(results::close);
+    }
+}
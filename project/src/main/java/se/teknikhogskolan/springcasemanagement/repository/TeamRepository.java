@@ -1,10 +1,25 @@
 package se.teknikhogskolan.springcasemanagement.repository;
 
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.repository.CrudRepository;
 
 import se.teknikhogskolan.springcasemanagement.model.Team;
 
-public interface TeamRepository extends CrudRepository<Team, Long> {
+public interface TeamRepository extends CrudRepository<Team, Long>, TeamRepositoryCustom {
+
+    <S extends Team> S saveAndFlush(S team);
+
+    List<Team> findByNameIn(Collection<String> names);
+
+    @EntityGraph("Team.users")
+    Team findWithUsersById(Long teamId);
 
-    Team findByName(String name);
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    Team findLockedById(Long teamId);
 }
\ No newline at end of file
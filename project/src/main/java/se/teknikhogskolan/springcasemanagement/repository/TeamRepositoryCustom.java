@@ -0,0 +1,12 @@
+package se.teknikhogskolan.springcasemanagement.repository;
+
+import java.util.List;
+
+import se.teknikhogskolan.springcasemanagement.model.Team;
+
+public interface TeamRepositoryCustom {
+
+    Team findByName(String name);
+
+    List<Team> insertAll(List<Team> teams);
+}
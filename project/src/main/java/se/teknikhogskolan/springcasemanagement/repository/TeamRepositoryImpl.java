@@ -0,0 +1,37 @@
+package se.teknikhogskolan.springcasemanagement.repository;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import se.teknikhogskolan.springcasemanagement.model.Team;
+
+@Transactional(readOnly = true)
+public class TeamRepositoryImpl implements TeamRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${casemanagement.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public Team findByName(String name) {
+        if (name == null) {
+            return null;
+        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Team.class).load(name);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Team> insertAll(List<Team> teams) {
+        return BatchInserts.persist(entityManager, teams, batchSize);
+    }
+}
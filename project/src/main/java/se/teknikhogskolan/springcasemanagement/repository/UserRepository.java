@@ -1,20 +1,47 @@
 package se.teknikhogskolan.springcasemanagement.repository;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
 import se.teknikhogskolan.springcasemanagement.model.User;
 
-public interface UserRepository extends CrudRepository<User, Long> {
+public interface UserRepository extends CrudRepository<User, Long>, UserRepositoryCustom {
 
-    User findByUserNumber(Long userNumber);
+    <S extends User> S saveAndFlush(S user);
+
+    @EntityGraph("User.team")
+    User findWithTeamById(Long userId);
+
+    @EntityGraph("User.workItems")
+    User findWithWorkItemsById(Long userId);
+
+    @EntityGraph("User.team")
+    User findWithTeamByUserNumber(Long userNumber);
+
+    @EntityGraph("User.workItems")
+    User findWithWorkItemsByUserNumber(Long userNumber);
+
+    List<User> findByUserNumberIn(Collection<Long> userNumbers);
+
+    List<User> findByUsernameIn(Collection<String> usernames);
 
     List<User> findByFirstNameContainingAndLastNameContainingAndUsernameContaining(String firstName, String lastName,
             String username);
 
     @Query("select u from User u where u.team.id = :teamId")
     List<User> findByTeamId(@Param("teamId") Long teamId);
+
+    @Query("select count(u) from User u where u.team.id = :teamId")
+    long countByTeamId(@Param("teamId") Long teamId);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.active = false, u.version = u.version + 1"
+            + " where u.team.id = :teamId and u.active = true")
+    int inactivateByTeamId(@Param("teamId") Long teamId);
 }
@@ -0,0 +1,14 @@
+package se.teknikhogskolan.springcasemanagement.repository;
+
+import java.util.List;
+
+import se.teknikhogskolan.springcasemanagement.model.User;
+
+public interface UserRepositoryCustom {
+
+    User findByUserNumber(Long userNumber);
+
+    User findLockedByUserNumber(Long userNumber);
+
+    List<User> insertAll(List<User> users);
+}
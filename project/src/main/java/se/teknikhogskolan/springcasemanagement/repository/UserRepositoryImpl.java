@@ -0,0 +1,50 @@
+package se.teknikhogskolan.springcasemanagement.repository;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import se.teknikhogskolan.springcasemanagement.model.User;
+
+@Transactional(readOnly = true)
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${casemanagement.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public User findByUserNumber(Long userNumber) {
+        if (userNumber == null) {
+            return null;
+        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(User.class).load(userNumber);
+    }
+
+    // Served by the natural-id cache like findByUserNumber; the version is bumped on commit, so that concurrent
+    // transactions locking the same user cannot both commit
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public User findLockedByUserNumber(Long userNumber) {
+        User user = findByUserNumber(userNumber);
+        if (user != null) {
+            entityManager.lock(user, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        }
+        return user;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<User> insertAll(List<User> users) {
+        return BatchInserts.persist(entityManager, users, batchSize);
+    }
+}
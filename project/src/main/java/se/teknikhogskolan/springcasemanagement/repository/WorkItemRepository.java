@@ -3,22 +3,62 @@ package se.teknikhogskolan.springcasemanagement.repository;
 import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
 import se.teknikhogskolan.springcasemanagement.model.WorkItem;
 
-public interface WorkItemRepository extends CrudRepository<WorkItem, Long> {
+public interface WorkItemRepository extends CrudRepository<WorkItem, Long>, WorkItemRepositoryCustom {
+
+    <S extends WorkItem> S saveAndFlush(S workItem);
+
+    void flush();
+
+    @EntityGraph("WorkItem.issueAndUser")
+    WorkItem findWithIssueAndUserById(Long workItemId);
 
     Collection<WorkItem> findByStatus(WorkItem.Status status);
 
-    Collection<WorkItem> findByUserId(Long userId);
+    @Query("select w from WorkItem w where w.user.id = :userId")
+    Collection<WorkItem> findByUserId(@Param("userId") Long userId);
+
+    @Query("select count(w) from WorkItem w where w.user.id = :userId")
+    long countByUserId(@Param("userId") Long userId);
 
     Collection<WorkItem> findByDescriptionContains(String text);
 
+    @Query("select w from WorkItem w where w.issue is not null")
     Collection<WorkItem> findByIssueIsNotNull();
+
+    Collection<WorkItem> findByDescriptionIn(Collection<String> descriptions);
+
+    List<WorkItem> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<WorkItem> findByStatusAndIdGreaterThanOrderByIdAsc(WorkItem.Status status, Long id, Pageable pageable);
+
+    @Query("select w from WorkItem w where w.user.id = :userId and w.id > :id order by w.id asc")
+    List<WorkItem> findByUserIdAndIdGreaterThanOrderByIdAsc(@Param("userId") Long userId, @Param("id") Long id,
+            Pageable pageable);
+
+    @Query("select w from WorkItem w where w.issue is not null and w.id > :id order by w.id asc")
+    List<WorkItem> findByIssueIsNotNullAndIdGreaterThanOrderByIdAsc(@Param("id") Long id, Pageable pageable);
     
-    @Query("Select w from WorkItem w left join User u on w.user.id = u.id WHERE u.team.id = :teamId")
-    List<WorkItem> findByTeamId(@Param("teamId") Long teamId);
+    @Modifying(clearAutomatically = true)
+    @Query("update WorkItem w set w.status = :status, w.version = w.version + 1 where w.user.id = :userId")
+    int updateStatusByUserId(@Param("userId") Long userId, @Param("status") WorkItem.Status status);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update WorkItem w set w.status = :status, w.version = w.version + 1"
+            + " where w.user.id in (select u.id from User u where u.team.id = :teamId)")
+    int updateStatusByTeamId(@Param("teamId") Long teamId, @Param("status") WorkItem.Status status);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update WorkItem w set w.status = :to, w.version = w.version + 1"
+            + " where w.status = :from and w.user.id in (select u.id from User u where u.team.id = :teamId)")
+    int updateStatusByTeamIdAndStatus(@Param("teamId") Long teamId, @Param("from") WorkItem.Status from,
+            @Param("to") WorkItem.Status to);
 }
@@ -0,0 +1,17 @@
+package se.teknikhogskolan.springcasemanagement.repository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import se.teknikhogskolan.springcasemanagement.model.WorkItem;
+
+public interface WorkItemRepositoryCustom {
+
+    Stream<WorkItem> streamAll();
+
+    Stream<WorkItem> streamByStatus(WorkItem.Status status);
+
+    List<WorkItem> insertAll(List<WorkItem> workItems);
+
+    List<WorkItem> findWorkloadByTeamId(Long teamId);
+}
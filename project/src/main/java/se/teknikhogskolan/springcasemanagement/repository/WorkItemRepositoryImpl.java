@@ -0,0 +1,65 @@
+package se.teknikhogskolan.springcasemanagement.repository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import se.teknikhogskolan.springcasemanagement.model.Issue;
+import se.teknikhogskolan.springcasemanagement.model.WorkItem;
+
+@Transactional(propagation = Propagation.MANDATORY, readOnly = true)
+public class WorkItemRepositoryImpl implements WorkItemRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${casemanagement.stream.fetch_size:500}")
+    private int fetchSize;
+
+    @Value("${casemanagement.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public Stream<WorkItem> streamAll() {
+        Session session = entityManager.unwrap(Session.class);
+        return ScrollingStreams.stream(session,
+                session.createQuery("select w from WorkItem w order by w.id", WorkItem.class), fetchSize);
+    }
+
+    @Override
+    public Stream<WorkItem> streamByStatus(WorkItem.Status status) {
+        Session session = entityManager.unwrap(Session.class);
+        return ScrollingStreams.stream(session,
+                session.createQuery("select w from WorkItem w where w.status = :status order by w.id", WorkItem.class)
+                        .setParameter("status", status),
+                fetchSize);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<WorkItem> insertAll(List<WorkItem> workItems) {
+        return BatchInserts.persist(entityManager, workItems, batchSize);
+    }
+
+    // Everything a team's work list shows, the assignee with their team and the issue, in two selects whatever the
+    // team size. The issues go first: an issue loaded together with its work item finds the inverse Issue.workItem
+    // in that row, while one loaded through a work item's join would look its work item up with a select of its own.
+    @Override
+    public List<WorkItem> findWorkloadByTeamId(Long teamId) {
+        entityManager.createQuery("select i from Issue i join fetch i.workItem w join fetch w.user u"
+                + " join fetch u.team t where t.id = :teamId", Issue.class)
+                .setParameter("teamId", teamId)
+                .getResultList();
+        return entityManager.createQuery("select w from WorkItem w join fetch w.user u join fetch u.team t"
+                + " left join fetch w.issue where t.id = :teamId", WorkItem.class)
+                .setParameter("teamId", teamId)
+                .getResultList();
+    }
+}
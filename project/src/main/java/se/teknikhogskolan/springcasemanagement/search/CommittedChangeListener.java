@@ -0,0 +1,148 @@
+package se.teknikhogskolan.springcasemanagement.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.query.Query;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+
+// Feeds committed inserts, updates and deletes of the indexed entities to an in-memory index
+abstract class CommittedChangeListener
+        implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final long serialVersionUID = -3489245718530217614L;
+
+    private final transient SessionFactoryImplementor sessionFactory;
+    private final transient ExecutorService warmupExecutor;
+
+    @Value("${casemanagement.stream.fetch_size:500}")
+    private int fetchSize;
+
+    CommittedChangeListener(EntityManagerFactory entityManagerFactory, String warmupThreadName) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.warmupExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, warmupThreadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    protected abstract boolean indexes(Class<?> entityType);
+
+    protected abstract Set<String> indexedProperties(Class<?> entityType);
+
+    protected abstract void saved(Class<?> entityType, Long id, Object entity);
+
+    protected abstract void deleted(Class<?> entityType, Long id);
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        warmupExecutor.shutdownNow();
+    }
+
+    protected Warmup warmup(String name, Runnable loader) {
+        return new Warmup(name, loader, warmupExecutor);
+    }
+
+    protected void scroll(String query, Consumer<Object[]> row) {
+        scroll(query, Collections.emptyMap(), row);
+    }
+
+    protected void scroll(String query, Map<String, ?> parameters, Consumer<Object[]> row) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Query<?> select = session.createQuery(query).setFetchSize(fetchSize);
+            parameters.forEach(select::setParameter);
+            ScrollableResults rows = select.scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                while (rows.next()) {
+                    row.accept(rows.get());
+                }
+            } finally {
+                rows.close();
+            }
+        }
+    }
+
+    // A pattern for "lower(value) like :pattern escape '!'" that matches the text anywhere in the value
+    static String containing(String text) {
+        return "%" + text.toLowerCase(Locale.ROOT).replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Class<?> entityType = event.getPersister().getMappedClass();
+        if (indexes(entityType)) {
+            saved(entityType, (Long) event.getId(), event.getEntity());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Class<?> entityType = event.getPersister().getMappedClass();
+        if (indexes(entityType) && indexedPropertyMayHaveChanged(entityType, event)) {
+            saved(entityType, (Long) event.getId(), event.getEntity());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Class<?> entityType = event.getPersister().getMappedClass();
+        if (indexes(entityType)) {
+            deleted(entityType, (Long) event.getId());
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {}
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {}
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {}
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return indexes(persister.getMappedClass());
+    }
+
+    private boolean indexedPropertyMayHaveChanged(Class<?> entityType, PostUpdateEvent event) {
+        if (event.getDirtyProperties() == null) {
+            return true;
+        }
+        String[] propertyNames = event.getPersister().getPropertyNames();
+        Set<String> indexed = indexedProperties(entityType);
+        return Arrays.stream(event.getDirtyProperties()).anyMatch(property -> indexed.contains(propertyNames[property]));
+    }
+}
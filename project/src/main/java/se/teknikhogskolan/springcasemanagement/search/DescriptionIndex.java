@@ -0,0 +1,126 @@
+package se.teknikhogskolan.springcasemanagement.search;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import se.teknikhogskolan.springcasemanagement.model.Issue;
+import se.teknikhogskolan.springcasemanagement.model.WorkItem;
+
+@Component
+public class DescriptionIndex extends CommittedChangeListener {
+
+    private static final long serialVersionUID = 2520474711434711207L;
+    private static final Set<String> INDEXED_PROPERTIES = Collections.singleton("description");
+
+    private final transient Map<Class<?>, Indexed<?>> indexes;
+
+    @Autowired
+    public DescriptionIndex(EntityManagerFactory entityManagerFactory) {
+        super(entityManagerFactory, "description-index-warmup");
+        Map<Class<?>, Indexed<?>> indexes = new HashMap<>();
+        indexes.put(WorkItem.class, new Indexed<>(WorkItem.class, WorkItem::getDescription));
+        indexes.put(Issue.class, new Indexed<>(Issue.class, Issue::getDescription));
+        this.indexes = Collections.unmodifiableMap(indexes);
+    }
+
+    // False while the index is still being loaded, in which case searches are answered from the database
+    public boolean isWarm(Class<?> entityType) {
+        return indexFor(entityType).warmup.isWarm();
+    }
+
+    // Ranked ids of the descriptions where every token of the text starts a token, from the index once warm and from
+    // the database until then
+    public List<Long> search(Class<?> entityType, String text) {
+        Indexed<?> indexed = indexFor(entityType);
+        return indexed.warmup.isWarm() ? indexed.index.search(text) : indexed.searchDatabase(text);
+    }
+
+    List<Long> searchDatabase(Class<?> entityType, String text) {
+        return indexFor(entityType).searchDatabase(text);
+    }
+
+    @Override
+    protected boolean indexes(Class<?> entityType) {
+        return indexes.containsKey(entityType);
+    }
+
+    @Override
+    protected Set<String> indexedProperties(Class<?> entityType) {
+        return INDEXED_PROPERTIES;
+    }
+
+    @Override
+    protected void saved(Class<?> entityType, Long id, Object entity) {
+        indexes.get(entityType).put(id, entity);
+    }
+
+    @Override
+    protected void deleted(Class<?> entityType, Long id) {
+        indexes.get(entityType).index.remove(id);
+    }
+
+    private Indexed<?> indexFor(Class<?> entityType) {
+        Indexed<?> indexed = indexes.get(entityType);
+        if (indexed == null) {
+            throw new IllegalArgumentException("No description index for " + entityType.getName());
+        }
+        return indexed;
+    }
+
+    private final class Indexed<T> {
+
+        private final Class<T> entityType;
+        private final Function<T, String> description;
+        private final InvertedIndex index = new InvertedIndex();
+        private final Warmup warmup;
+
+        private Indexed(Class<T> entityType, Function<T, String> description) {
+            this.entityType = entityType;
+            this.description = description;
+            this.warmup = warmup(entityType.getSimpleName() + " description", this::load);
+        }
+
+        private void put(Long id, Object entity) {
+            index.put(id, description.apply(entityType.cast(entity)));
+        }
+
+        // The database narrows the rows down to those containing every token and a throwaway index applies the warm
+        // index's matching to them. Ranking weighs tokens by how rare they are among those rows only.
+        private List<Long> searchDatabase(String text) {
+            List<String> tokens = InvertedIndex.tokenize(text);
+            if (tokens.isEmpty()) {
+                return Collections.emptyList();
+            }
+            StringBuilder query = new StringBuilder("select e.id, e.description from ")
+                    .append(entityType.getSimpleName()).append(" e where ");
+            Map<String, Object> parameters = new HashMap<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                query.append(i == 0 ? "" : " and ").append("lower(e.description) like :token").append(i)
+                        .append(" escape '!'");
+                parameters.put("token" + i, containing(tokens.get(i)));
+            }
+            InvertedIndex matches = new InvertedIndex();
+            scroll(query.toString(), parameters, row -> matches.put((Long) row[0], (String) row[1]));
+            return matches.search(text);
+        }
+
+        private void load() {
+            index.beginLoad();
+            try {
+                scroll("select e.id, e.description from " + entityType.getSimpleName() + " e",
+                        row -> index.load((Long) row[0], (String) row[1]));
+            } finally {
+                index.endLoad();
+            }
+        }
+    }
+}
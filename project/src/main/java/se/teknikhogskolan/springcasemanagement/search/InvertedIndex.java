@@ -0,0 +1,132 @@
+package se.teknikhogskolan.springcasemanagement.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+public final class InvertedIndex extends LoadableIndex<Map<String, Integer>> {
+
+    private static final double PREFIX_MATCH_WEIGHT = 0.5;
+
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    public void put(long id, String text) {
+        putDocument(id, frequencies(text));
+    }
+
+    public void load(long id, String text) {
+        loadDocument(id, frequencies(text));
+    }
+
+    // Every query token has to match a document token exactly or as a prefix; exact matches and rare tokens rank higher
+    public List<Long> search(String query) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return read(() -> {
+            // Intersecting from the rarest term means later terms only have to score the remaining candidates
+            Map<String, Integer> postingCounts = new HashMap<>();
+            terms.forEach(term -> postingCounts.put(term, postingCount(matching(term))));
+            List<String> rarestFirst = terms.stream()
+                    .sorted(Comparator.comparing(postingCounts::get))
+                    .collect(Collectors.toList());
+            Map<Long, Double> scores = null;
+            for (String term : rarestFirst) {
+                scores = score(term, scores);
+                if (scores.isEmpty()) {
+                    return Collections.<Long>emptyList();
+                }
+            }
+            return scores.entrySet().stream()
+                    .sorted(Comparator.comparing(Map.Entry<Long, Double>::getValue).reversed()
+                            .thenComparing(Map.Entry::getKey))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private Map<String, Map<Long, Integer>> matching(String term) {
+        return postings.subMap(term, true, term + Character.MAX_VALUE, false);
+    }
+
+    private static int postingCount(Map<String, Map<Long, Integer>> matches) {
+        int count = 0;
+        for (Map<Long, Integer> posting : matches.values()) {
+            count += posting.size();
+        }
+        return count;
+    }
+
+    private Map<Long, Double> score(String term, Map<Long, Double> candidates) {
+        Map<Long, Double> termScores = new HashMap<>();
+        for (Map.Entry<String, Map<Long, Integer>> match : matching(term).entrySet()) {
+            Map<Long, Integer> posting = match.getValue();
+            double weight = match.getKey().equals(term) ? 1.0 : PREFIX_MATCH_WEIGHT;
+            double idf = Math.log(1.0 + (double) documents().size() / posting.size());
+            if (candidates == null || posting.size() <= candidates.size()) {
+                posting.forEach((id, frequency) -> {
+                    if (candidates == null || candidates.containsKey(id)) {
+                        termScores.merge(id, weight * frequency * idf, Double::sum);
+                    }
+                });
+            } else {
+                candidates.keySet().forEach(id -> {
+                    Integer frequency = posting.get(id);
+                    if (frequency != null) {
+                        termScores.merge(id, weight * frequency * idf, Double::sum);
+                    }
+                });
+            }
+        }
+        if (candidates != null) {
+            termScores.replaceAll((id, score) -> score + candidates.get(id));
+        }
+        return termScores;
+    }
+
+    @Override
+    protected void addPostings(long id, Map<String, Integer> frequencies) {
+        frequencies.forEach((token, frequency) -> postings.computeIfAbsent(token, key -> new HashMap<>())
+                .put(id, frequency));
+    }
+
+    @Override
+    protected void removePostings(long id, Map<String, Integer> frequencies) {
+        for (String token : frequencies.keySet()) {
+            Map<Long, Integer> posting = postings.get(token);
+            posting.remove(id);
+            if (posting.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    private static Map<String, Integer> frequencies(String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        tokenize(text).forEach(token -> frequencies.merge(token, 1, Integer::sum));
+        return frequencies;
+    }
+}
@@ -0,0 +1,101 @@
+package se.teknikhogskolan.springcasemanagement.search;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+abstract class LoadableIndex<D> {
+
+    private final Map<Long, D> documents = new HashMap<>();
+    private final Set<Long> removedWhileLoading = new HashSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean loading;
+
+    protected abstract void addPostings(long id, D document);
+
+    protected abstract void removePostings(long id, D document);
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            if (loading) {
+                removedWhileLoading.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // While loading, documents put or removed by live changes win over the possibly older loaded snapshot
+    public void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            loading = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void endLoad() {
+        lock.writeLock().lock();
+        try {
+            loading = false;
+            removedWhileLoading.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        return read(documents::size);
+    }
+
+    protected void putDocument(long id, D document) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            documents.put(id, document);
+            addPostings(id, document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    protected void loadDocument(long id, D document) {
+        lock.writeLock().lock();
+        try {
+            if (!documents.containsKey(id) && !removedWhileLoading.contains(id)) {
+                documents.put(id, document);
+                addPostings(id, document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Only to be called from within read(...)
+    protected Map<Long, D> documents() {
+        return documents;
+    }
+
+    protected <R> R read(Supplier<R> query) {
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeDocument(long id) {
+        D document = documents.remove(id);
+        if (document != null) {
+            removePostings(id, document);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package se.teknikhogskolan.springcasemanagement.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import se.teknikhogskolan.springcasemanagement.model.AbstractEntity;
+
+public final class SearchResults {
+
+    public static final int MAX_RESULTS = 500;
+
+    private SearchResults() {}
+
+    // The best ranked ids only, so a short or common term does not load every matching entity
+    public static List<Long> top(List<Long> rankedIds) {
+        return rankedIds.size() > MAX_RESULTS ? rankedIds.subList(0, MAX_RESULTS) : rankedIds;
+    }
+
+    public static <T extends AbstractEntity> List<T> inRankOrder(List<Long> rankedIds, Iterable<T> entities) {
+        Map<Long, T> entitiesById = new HashMap<>();
+        entities.forEach(entity -> entitiesById.put(entity.getId(), entity));
+        List<T> result = new ArrayList<>(entitiesById.size());
+        for (Long id : rankedIds) {
+            T entity = entitiesById.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,133 @@
+package se.teknikhogskolan.springcasemanagement.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public final class TrigramIndex extends LoadableIndex<String[]> {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final int fieldCount;
+    private final List<Map<String, Set<Long>>> postings = new ArrayList<>();
+
+    public TrigramIndex(int fieldCount) {
+        this.fieldCount = fieldCount;
+        for (int field = 0; field < fieldCount; field++) {
+            postings.add(new HashMap<>());
+        }
+    }
+
+    public void put(long id, String... values) {
+        putDocument(id, normalize(values));
+    }
+
+    public void load(long id, String... values) {
+        loadDocument(id, normalize(values));
+    }
+
+    // Same semantics as one "field like %criterion%" per field: null never matches and the empty string matches any
+    // non-null value. Trigram postings narrow the candidates, which are then checked against the stored values;
+    // criteria shorter than a trigram are only checked, so if all of them are that short every document is checked.
+    public List<Long> search(String... criteria) {
+        if (criteria.length != fieldCount) {
+            throw new IllegalArgumentException("Expected " + fieldCount + " criteria, got " + criteria.length);
+        }
+        for (String criterion : criteria) {
+            if (criterion == null) {
+                return Collections.emptyList();
+            }
+        }
+        String[] normalized = normalize(criteria);
+        return read(() -> {
+            Set<Long> candidates = null;
+            for (Set<Long> posting : postingsFor(normalized)) {
+                if (candidates == null) {
+                    candidates = new HashSet<>(posting);
+                } else {
+                    candidates.retainAll(posting);
+                }
+                if (candidates.isEmpty()) {
+                    return Collections.<Long>emptyList();
+                }
+            }
+            Map<Long, String[]> documents = documents();
+            return (candidates == null ? documents.keySet() : candidates).stream()
+                    .filter(id -> matches(documents.get(id), normalized))
+                    .sorted()
+                    .collect(Collectors.toList());
+        });
+    }
+
+    @Override
+    protected void addPostings(long id, String[] values) {
+        for (int field = 0; field < fieldCount; field++) {
+            Map<String, Set<Long>> fieldPostings = postings.get(field);
+            grams(values[field]).forEach(gram -> fieldPostings.computeIfAbsent(gram, key -> new HashSet<>()).add(id));
+        }
+    }
+
+    @Override
+    protected void removePostings(long id, String[] values) {
+        for (int field = 0; field < fieldCount; field++) {
+            Map<String, Set<Long>> fieldPostings = postings.get(field);
+            for (String gram : grams(values[field])) {
+                Set<Long> posting = fieldPostings.get(gram);
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    fieldPostings.remove(gram);
+                }
+            }
+        }
+    }
+
+    // Smallest posting first so the intersection shrinks as early as possible
+    private List<Set<Long>> postingsFor(String[] criteria) {
+        List<Set<Long>> result = new ArrayList<>();
+        for (int field = 0; field < fieldCount; field++) {
+            for (String gram : grams(criteria[field])) {
+                result.add(postings.get(field).getOrDefault(gram, Collections.emptySet()));
+            }
+        }
+        result.sort(Comparator.comparingInt(Set::size));
+        return result;
+    }
+
+    private boolean matches(String[] values, String[] criteria) {
+        for (int field = 0; field < fieldCount; field++) {
+            if (values[field] == null || !values[field].contains(criteria[field])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String[] normalize(String[] values) {
+        if (values.length != fieldCount) {
+            throw new IllegalArgumentException("Expected " + fieldCount + " values, got " + values.length);
+        }
+        String[] normalized = new String[fieldCount];
+        for (int field = 0; field < fieldCount; field++) {
+            normalized[field] = values[field] == null ? null : values[field].toLowerCase(Locale.ROOT);
+        }
+        return normalized;
+    }
+
+    static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        if (value == null) {
+            return grams;
+        }
+        for (int start = 0; start + GRAM_LENGTH <= value.length(); start++) {
+            grams.add(value.substring(start, start + GRAM_LENGTH));
+        }
+        return grams;
+    }
+}
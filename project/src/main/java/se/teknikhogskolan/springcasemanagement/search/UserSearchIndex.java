@@ -0,0 +1,91 @@
+package se.teknikhogskolan.springcasemanagement.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import se.teknikhogskolan.springcasemanagement.model.User;
+
+@Component
+public class UserSearchIndex extends CommittedChangeListener {
+
+    private static final long serialVersionUID = -6015431349236043154L;
+    private static final Set<String> INDEXED_PROPERTIES = Collections
+            .unmodifiableSet(new HashSet<>(Arrays.asList("firstName", "lastName", "username")));
+
+    private final transient TrigramIndex index = new TrigramIndex(INDEXED_PROPERTIES.size());
+    private final transient Warmup warmup;
+
+    @Autowired
+    public UserSearchIndex(EntityManagerFactory entityManagerFactory) {
+        super(entityManagerFactory, "user-index-warmup");
+        this.warmup = warmup("User name", this::load);
+    }
+
+    // False while the index is still being loaded, in which case searches are answered from the database
+    public boolean isWarm() {
+        return warmup.isWarm();
+    }
+
+    // Matching ids in id order, from the index once warm and from the database until then, with the same rules
+    public List<Long> search(String firstName, String lastName, String username) {
+        return isWarm() ? index.search(firstName, lastName, username) : searchDatabase(firstName, lastName, username);
+    }
+
+    // The database narrows the users down and a throwaway index applies the warm index's matching to them
+    List<Long> searchDatabase(String firstName, String lastName, String username) {
+        if (firstName == null || lastName == null || username == null) {
+            return Collections.emptyList();
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("firstName", containing(firstName));
+        parameters.put("lastName", containing(lastName));
+        parameters.put("username", containing(username));
+        TrigramIndex matches = new TrigramIndex(INDEXED_PROPERTIES.size());
+        scroll("select u.id, u.firstName, u.lastName, u.username from User u"
+                + " where lower(u.firstName) like :firstName escape '!' and lower(u.lastName) like :lastName escape '!'"
+                + " and lower(u.username) like :username escape '!'", parameters,
+                row -> matches.put((Long) row[0], (String) row[1], (String) row[2], (String) row[3]));
+        return matches.search(firstName, lastName, username);
+    }
+
+    @Override
+    protected boolean indexes(Class<?> entityType) {
+        return User.class.equals(entityType);
+    }
+
+    @Override
+    protected Set<String> indexedProperties(Class<?> entityType) {
+        return INDEXED_PROPERTIES;
+    }
+
+    @Override
+    protected void saved(Class<?> entityType, Long id, Object entity) {
+        User user = (User) entity;
+        index.put(id, user.getFirstName(), user.getLastName(), user.getUsername());
+    }
+
+    @Override
+    protected void deleted(Class<?> entityType, Long id) {
+        index.remove(id);
+    }
+
+    private void load() {
+        index.beginLoad();
+        try {
+            scroll("select u.id, u.firstName, u.lastName, u.username from User u",
+                    row -> index.load((Long) row[0], (String) row[1], (String) row[2], (String) row[3]));
+        } finally {
+            index.endLoad();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package se.teknikhogskolan.springcasemanagement.search;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+final class Warmup {
+
+    private enum State {
+        COLD, WARMING, WARM
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(Warmup.class);
+
+    private final String name;
+    private final Runnable loader;
+    private final Executor executor;
+    private final AtomicReference<State> state = new AtomicReference<>(State.COLD);
+
+    Warmup(String name, Runnable loader, Executor executor) {
+        this.name = name;
+        this.loader = loader;
+        this.executor = executor;
+    }
+
+    // Starts loading in the background the first time it is asked and reports warm only once loading has finished
+    boolean isWarm() {
+        if (state.compareAndSet(State.COLD, State.WARMING)) {
+            executor.execute(() -> {
+                boolean loaded = false;
+                try {
+                    loader.run();
+                    loaded = true;
+                } catch (RuntimeException e) {
+                    LOG.warn("Could not warm up {} index, will retry on next search", name, e);
+                } finally {
+                    state.set(loaded ? State.WARM : State.COLD);
+                }
+            });
+        }
+        return state.get() == State.WARM;
+    }
+}
@@ -0,0 +1,167 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import se.teknikhogskolan.springcasemanagement.config.ReadYourWrites;
+import se.teknikhogskolan.springcasemanagement.tracing.Span;
+import se.teknikhogskolan.springcasemanagement.tracing.Tracer;
+
+// Runs service calls on a worker thread. Every call opens its own transaction and persistence context on that thread
+// and never joins a transaction of the caller, so entities returned by one call are detached in the next. The call
+// does join the caller's trace, in an async span that records how long it waited for a thread, and the caller's
+// ReadYourWrites scope, so a read right after the caller's write is not routed to a lagging replica.
+@Service
+public class AsyncServiceFacade {
+    public enum Mode {
+        BOUNDED, VIRTUAL
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncServiceFacade.class);
+
+    private final UserService userService;
+    private final TeamService teamService;
+    private final WorkItemService workItemService;
+    private final IssueService issueService;
+    private final Tracer tracer;
+    private final ExecutorService executorService;
+    private final Executor executor;
+
+    @Autowired
+    public AsyncServiceFacade(UserService userService, TeamService teamService, WorkItemService workItemService,
+            IssueService issueService, Tracer tracer, @Value("${casemanagement.async.mode:BOUNDED}") Mode mode,
+            @Value("${casemanagement.async.threads:10}") int threads,
+            @Value("${casemanagement.async.queue_capacity:1000}") int queueCapacity) {
+        this.userService = userService;
+        this.teamService = teamService;
+        this.workItemService = workItemService;
+        this.issueService = issueService;
+        this.tracer = tracer;
+
+        ExecutorService virtual = mode == Mode.VIRTUAL ? virtualThreadPerTaskExecutor() : null;
+        if (virtual != null) {
+            this.executorService = virtual;
+            this.executor = new PermitExecutor(virtual, threads + queueCapacity);
+        } else {
+            this.executorService = boundedExecutor(threads, queueCapacity);
+            this.executor = executorService;
+        }
+    }
+
+    public <T> CompletableFuture<T> users(Function<UserService, T> call) {
+        return submit(userService, call);
+    }
+
+    public <T> CompletableFuture<T> teams(Function<TeamService, T> call) {
+        return submit(teamService, call);
+    }
+
+    public <T> CompletableFuture<T> workItems(Function<WorkItemService, T> call) {
+        return submit(workItemService, call);
+    }
+
+    public <T> CompletableFuture<T> issues(Function<IssueService, T> call) {
+        return submit(issueService, call);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    private <S, T> CompletableFuture<T> submit(S service, Function<S, T> call) {
+        try {
+            if (!tracer.isEnabled()) {
+                return CompletableFuture.supplyAsync(ReadYourWrites.wrap(() -> call.apply(service)), executor);
+            }
+            long submitted = System.nanoTime();
+            Supplier<T> traced = tracer.wrap(() -> {
+                try (Span span = tracer.start("async")) {
+                    span.setAttribute("queueWaitMicros", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - submitted));
+                    try {
+                        return call.apply(service);
+                    } catch (RuntimeException e) {
+                        span.setError(e);
+                        throw e;
+                    }
+                }
+            });
+            return CompletableFuture.supplyAsync(ReadYourWrites.wrap(traced), executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new ServiceException("Too many pending service calls", e));
+            return rejected;
+        }
+    }
+
+    private static ExecutorService boundedExecutor(int threads, int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "casemanagement-async-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // Looked up reflectively since the code is compiled for Java 8
+    private static ExecutorService virtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOG.warn("Virtual threads are not available on Java {}, using a bounded thread pool",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    // Virtual threads are cheap, connections are not. Caps the calls in flight like the bounded pool and its queue.
+    private static final class PermitExecutor implements Executor {
+        private final Executor delegate;
+        private final Semaphore permits;
+
+        PermitExecutor(Executor delegate, int permits) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(permits);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (!permits.tryAcquire()) {
+                throw new RejectedExecutionException("No permits left");
+            }
+            try {
+                delegate.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+    }
+}
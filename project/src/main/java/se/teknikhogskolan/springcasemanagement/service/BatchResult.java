@@ -0,0 +1,28 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public final class BatchResult<T> {
+
+    private final List<T> created;
+    private final Map<Integer, String> errors;
+
+    BatchResult(List<T> created, Map<Integer, String> errors) {
+        this.created = Collections.unmodifiableList(created);
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    public List<T> getCreated() {
+        return created;
+    }
+
+    public Map<Integer, String> getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
@@ -0,0 +1,91 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.NaturalIdCacheStatistics;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+// Hibernate only counts with casemanagement.hibernate.statistics=true. Without it every count would read 0, so the
+// counts throw a ServiceException instead; isStatisticsEnabled() tells callers beforehand.
+@Service
+public class CacheStatisticsService {
+
+    private final Statistics statistics;
+
+    @Autowired
+    public CacheStatisticsService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public boolean isStatisticsEnabled() {
+        return statistics.isStatisticsEnabled();
+    }
+
+    public long getHitCount() {
+        requireStatistics();
+        return statistics.getSecondLevelCacheHitCount();
+    }
+
+    public long getMissCount() {
+        requireStatistics();
+        return statistics.getSecondLevelCacheMissCount();
+    }
+
+    public long getHitCount(Class<?> entityClass) {
+        requireStatistics();
+        SecondLevelCacheStatistics region = statistics.getSecondLevelCacheStatistics(entityClass.getName());
+        return region == null ? 0 : region.getHitCount();
+    }
+
+    public long getMissCount(Class<?> entityClass) {
+        requireStatistics();
+        SecondLevelCacheStatistics region = statistics.getSecondLevelCacheStatistics(entityClass.getName());
+        return region == null ? 0 : region.getMissCount();
+    }
+
+    public long getNaturalIdHitCount() {
+        requireStatistics();
+        return statistics.getNaturalIdCacheHitCount();
+    }
+
+    public long getNaturalIdMissCount() {
+        requireStatistics();
+        return statistics.getNaturalIdCacheMissCount();
+    }
+
+    public long getNaturalIdHitCount(Class<?> entityClass) {
+        requireStatistics();
+        NaturalIdCacheStatistics region = naturalIdRegion(entityClass);
+        return region == null ? 0 : region.getHitCount();
+    }
+
+    public long getNaturalIdMissCount(Class<?> entityClass) {
+        requireStatistics();
+        NaturalIdCacheStatistics region = naturalIdRegion(entityClass);
+        return region == null ? 0 : region.getMissCount();
+    }
+
+    public double getHitRatio() {
+        long hits = getHitCount();
+        long lookups = hits + getMissCount();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public void clear() {
+        statistics.clear();
+    }
+
+    private void requireStatistics() {
+        if (!statistics.isStatisticsEnabled()) {
+            throw new ServiceException("Cache statistics are off, set casemanagement.hibernate.statistics=true");
+        }
+    }
+
+    private NaturalIdCacheStatistics naturalIdRegion(Class<?> entityClass) {
+        return statistics.getNaturalIdCacheStatistics(entityClass.getName() + "##NaturalId");
+    }
+}
@@ -1,56 +1,92 @@
 package se.teknikhogskolan.springcasemanagement.service;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import se.teknikhogskolan.springcasemanagement.model.Issue;
 import se.teknikhogskolan.springcasemanagement.repository.IssueRepository;
+import se.teknikhogskolan.springcasemanagement.search.DescriptionIndex;
+import se.teknikhogskolan.springcasemanagement.search.SearchResults;
 
 @Service
 public class IssueService {
 
     private final IssueRepository issueRepository;
+    private final DescriptionIndex descriptionIndex;
 
     @Autowired
-    public IssueService(IssueRepository issueRepository) {
+    public IssueService(IssueRepository issueRepository, DescriptionIndex descriptionIndex) {
         this.issueRepository = issueRepository;
+        this.descriptionIndex = descriptionIndex;
     }
 
+    @Transactional(readOnly = true)
     public Issue getById(Long issueId) {
-        Issue issue;
+        return findById(issueId).orElseThrow(
+                () -> new NoSearchResultException(() -> "Issue with issueId '" + issueId + "' do not exist"));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Issue> findById(Long issueId) {
         try {
-            issue = issueRepository.findOne(issueId);
+            return Optional.ofNullable(issueRepository.findOne(issueId));
         } catch (Exception e) {
             throw new ServiceException("Could not get issue with id: " + issueId, e);
         }
-
-        if (issue != null) {
-            return issue;
-        } else
-            throw new NoSearchResultException("Issue with issueId '" + issueId + "' do not exist");
     }
 
+    @Transactional(readOnly = true)
     public Issue getByDescription(String description) {
-        Issue issue;
+        return findByDescription(description).orElseThrow(() -> new NoSearchResultException(
+                () -> "Issue with description '" + description + "' do not exist"));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Issue> findByDescription(String description) {
         try {
-            issue = issueRepository.findByDescription(description);
+            return Optional.ofNullable(issueRepository.findByDescription(description));
         } catch (Exception e) {
             throw new ServiceException("Could not get issue with description: " + description, e);
         }
+    }
 
-        if (issue != null) {
-            return issue;
+    // Same matching and limit as findMatching
+    @Transactional(readOnly = true)
+    public List<Issue> search(String text) {
+        List<Issue> issues = findMatching(text);
+        if (!issues.isEmpty()) {
+            return issues;
         } else
-            throw new NoSearchResultException("Issue with description '" + description + "' do not exist");
+            throw new NoSearchResultException(() -> "No issues matching '" + text + "'");
+    }
+
+    // Issues with a description token starting with each word of the text, best match first. Only the best
+    // SearchResults.MAX_RESULTS are returned, so a result of that size may have been cut short.
+    @Transactional(readOnly = true)
+    public List<Issue> findMatching(String text) {
+        try {
+            List<Long> rankedIds = SearchResults.top(descriptionIndex.search(Issue.class, text));
+            return SearchResults.inRankOrder(rankedIds, issueRepository.findAll(rankedIds));
+        } catch (Exception e) {
+            throw new ServiceException("Could not search issues for: " + text, e);
+        }
     }
 
+    @Transactional
     public Issue updateDescription(Long issueId, String description) {
         try {
             Issue issue = issueRepository.findOne(issueId);
             if (issue.isActive()) {
                 issue.setDescription(description);
-                return issueRepository.save(issue);
+                return issueRepository.saveAndFlush(issue);
             } else {
                 throw new ServiceException("Could not update "
                         + "description on Issue with issueId '" + issueId + "' since it's inactivate.");
@@ -65,11 +101,12 @@ public class IssueService {
         }
     }
 
+    @Transactional
     public Issue inactivate(Long issueId) {
         try {
             Issue issue = issueRepository.findOne(issueId);
             issue.setActive(false);
-            return issueRepository.save(issue);
+            return issueRepository.saveAndFlush(issue);
         } catch (NullPointerException e) {
             throw new NoSearchResultException("Failed to inactive issue with id '"
                     + issueId + "' since it could not be found in the database", e);
@@ -78,11 +115,12 @@ public class IssueService {
         }
     }
 
+    @Transactional
     public Issue activate(Long issueId) {
         try {
             Issue issue = issueRepository.findOne(issueId);
             issue.setActive(true);
-            return issueRepository.save(issue);
+            return issueRepository.saveAndFlush(issue);
         } catch (NullPointerException e) {
             throw new NoSearchResultException("Failed to activate issue with id '"
                     + issueId + "' since it could not be found in the database");
@@ -91,6 +129,29 @@ public class IssueService {
         }
     }
 
+    @Transactional(readOnly = true)
+    public void forEach(Consumer<Issue> action) {
+        try (Stream<Issue> issues = issueRepository.streamAll()) {
+            issues.forEach(action);
+        } catch (ServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ServiceException("Could not stream issues", e);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<Issue> getAllAfter(Long afterId, int limit) {
+        Pageable pageable = Keyset.limit(limit);
+        try {
+            return Keyset.toSlice(issueRepository.findByIdGreaterThanOrderByIdAsc(Keyset.after(afterId), pageable),
+                    limit);
+        } catch (Exception e) {
+            throw new ServiceException("Could not get issues after id: " + afterId, e);
+        }
+    }
+
+    @Transactional(readOnly = true)
     public Slice<Issue> getAllByPage(int page, int pageSize) {
         Slice<Issue> slice;
         try {
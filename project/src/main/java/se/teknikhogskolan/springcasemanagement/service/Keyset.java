@@ -0,0 +1,37 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import java.util.List;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+final class Keyset {
+
+    static final long FIRST = 0L;
+    static final int MAX_LIMIT = 1000;
+
+    private Keyset() {}
+
+    static long after(Long afterId) {
+        return afterId == null ? FIRST : afterId;
+    }
+
+    // One row more than asked for tells whether there is a next page without a count query
+    static Pageable limit(int limit) {
+        if (limit < 1) {
+            throw new ServiceException("Limit must be at least 1, was " + limit);
+        }
+        if (limit > MAX_LIMIT) {
+            throw new ServiceException("Limit must be at most " + MAX_LIMIT + ", was " + limit);
+        }
+        return new PageRequest(0, limit + 1);
+    }
+
+    static <T> Slice<T> toSlice(List<T> rows, int limit) {
+        boolean hasNext = rows.size() > limit;
+        List<T> content = hasNext ? rows.subList(0, limit) : rows;
+        return new SliceImpl<>(content, new PageRequest(0, limit), hasNext);
+    }
+}
@@ -1,5 +1,7 @@
 package se.teknikhogskolan.springcasemanagement.service;
 
+import java.util.function.Supplier;
+
 public class NoSearchResultException extends ServiceException {
 
     private static final long serialVersionUID = 1111170353744704876L;
@@ -15,4 +17,12 @@ public class NoSearchResultException extends ServiceException {
     protected NoSearchResultException() {
         super();
     }
-}
\ No newline at end of file
+
+    protected NoSearchResultException(Supplier<String> message, Throwable cause) {
+        super(message, cause);
+    }
+
+    protected NoSearchResultException(Supplier<String> message) {
+        super(message);
+    }
+}
@@ -0,0 +1,51 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import java.lang.reflect.Method;
+
+import javax.persistence.OptimisticLockException;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.hibernate.StaleStateException;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+public class OptimisticLockRetryInterceptor implements MethodInterceptor {
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getThis() == null ? invocation.getMethod()
+                : AopUtils.getMostSpecificMethod(invocation.getMethod(), invocation.getThis().getClass());
+        RetryOnOptimisticLock retry = AnnotationUtils.findAnnotation(method, RetryOnOptimisticLock.class);
+        int maxAttempts = retry == null ? 1 : Math.max(1, retry.maxAttempts());
+
+        for (int attempt = 1;; attempt++) {
+            try {
+                return ((ProxyMethodInvocation) invocation).invocableClone().proceed();
+            } catch (Exception e) {
+                if (!causedByOptimisticLock(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    if (e instanceof ServiceException) {
+                        throw e;
+                    }
+                    throw new ServiceException(String.format("%s failed after %d attempts due to concurrent updates",
+                            invocation.getMethod().getName(), attempt), e);
+                }
+            }
+        }
+    }
+
+    private boolean causedByOptimisticLock(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException || cause instanceof OptimisticLockException
+                    || cause instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
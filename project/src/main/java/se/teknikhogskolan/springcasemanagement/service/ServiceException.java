@@ -1,9 +1,16 @@
 package se.teknikhogskolan.springcasemanagement.service;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.function.Supplier;
+
 public class ServiceException extends RuntimeException {
 
     private static final long serialVersionUID = 4662570353744704876L;
 
+    private transient Supplier<String> lazyMessage;
+    private String message;
+
     protected ServiceException(String message, Throwable cause) {
         super(message, cause);
     }
@@ -15,4 +22,28 @@ public class ServiceException extends RuntimeException {
     protected ServiceException() {
         super();
     }
-}
\ No newline at end of file
+
+    // Stackless, and the message is only formatted if someone reads it. Meant for expected outcomes such as
+    // "not found" that callers handle without logging.
+    protected ServiceException(Supplier<String> message, Throwable cause) {
+        super(null, cause, false, false);
+        this.lazyMessage = message;
+    }
+
+    protected ServiceException(Supplier<String> message) {
+        this(message, null);
+    }
+
+    @Override
+    public String getMessage() {
+        if (message == null && lazyMessage != null) {
+            message = lazyMessage.get();
+        }
+        return message != null ? message : super.getMessage();
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getMessage();
+        out.defaultWriteObject();
+    }
+}
@@ -0,0 +1,184 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+// Callers record into wait-free HdrHistogram recorders and LongAdders; the cost of merging is paid by whoever reads
+public class ServiceMetrics implements ServiceMetricsMXBean {
+
+    private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Method, Operation> operationsByMethod = new ConcurrentHashMap<>();
+
+    public Operation operation(Class<?> service, Method method) {
+        Operation operation = operationsByMethod.get(method);
+        if (operation == null) {
+            operation = operationsByMethod.computeIfAbsent(method, key -> operations
+                    .computeIfAbsent(service.getSimpleName() + "." + method.getName(), Operation::new));
+        }
+        return operation;
+    }
+
+    @Override
+    public List<OperationSnapshot> getOperations() {
+        List<OperationSnapshot> snapshots = new ArrayList<>();
+        new TreeMap<>(operations).values().forEach(operation -> snapshots.add(operation.snapshot()));
+        return snapshots;
+    }
+
+    public OperationSnapshot getOperation(String name) {
+        Operation operation = operations.get(name);
+        return operation == null ? null : operation.snapshot();
+    }
+
+    // Prometheus text exposition format
+    @Override
+    public String getReport() {
+        List<OperationSnapshot> snapshots = getOperations();
+        StringBuilder report = new StringBuilder();
+        report.append("# TYPE casemanagement_service_calls_total counter\n");
+        for (OperationSnapshot snapshot : snapshots) {
+            report.append("casemanagement_service_calls_total{operation=\"").append(snapshot.getOperation())
+                    .append("\"} ").append(snapshot.getCalls()).append('\n');
+        }
+        report.append("# TYPE casemanagement_service_errors_total counter\n");
+        for (OperationSnapshot snapshot : snapshots) {
+            snapshot.getErrorsByType().forEach((type, count) -> report
+                    .append("casemanagement_service_errors_total{operation=\"").append(snapshot.getOperation())
+                    .append("\",exception=\"").append(type).append("\"} ").append(count).append('\n'));
+        }
+        report.append("# TYPE casemanagement_service_latency_seconds summary\n");
+        for (OperationSnapshot snapshot : snapshots) {
+            String labels = "casemanagement_service_latency_seconds{operation=\"" + snapshot.getOperation() + "\"";
+            report.append(labels).append(",quantile=\"0.5\"} ").append(seconds(snapshot.getP50Micros())).append('\n');
+            report.append(labels).append(",quantile=\"0.99\"} ").append(seconds(snapshot.getP99Micros())).append('\n');
+            report.append(labels).append(",quantile=\"0.999\"} ").append(seconds(snapshot.getP999Micros()))
+                    .append('\n');
+            report.append("casemanagement_service_latency_seconds_count{operation=\"").append(snapshot.getOperation())
+                    .append("\"} ").append(snapshot.getCalls()).append('\n');
+        }
+        return report.toString();
+    }
+
+    @Override
+    public void reset() {
+        operations.values().forEach(Operation::reset);
+    }
+
+    private static double seconds(double micros) {
+        return micros / 1_000_000;
+    }
+
+    public static final class Operation {
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+        private final Recorder recorder = new Recorder(3);
+        private final Histogram total = new Histogram(3);
+        private Histogram interval;
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        public void completed(long elapsedNanos) {
+            calls.increment();
+            recorder.recordValue(elapsedNanos);
+        }
+
+        public void failed(long elapsedNanos, Throwable error) {
+            completed(elapsedNanos);
+            errors.computeIfAbsent(error.getClass().getSimpleName(), type -> new LongAdder()).increment();
+        }
+
+        private synchronized OperationSnapshot snapshot() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            Map<String, Long> errorsByType = new TreeMap<>();
+            errors.forEach((type, count) -> errorsByType.put(type, count.sum()));
+            return new OperationSnapshot(name, calls.sum(), errorsByType, micros(total.getValueAtPercentile(50)),
+                    micros(total.getValueAtPercentile(99)), micros(total.getValueAtPercentile(99.9)),
+                    micros(total.getMaxValue()), total.getMean() / TimeUnit.MICROSECONDS.toNanos(1));
+        }
+
+        private synchronized void reset() {
+            recorder.reset();
+            total.reset();
+            calls.reset();
+            errors.clear();
+        }
+
+        private static double micros(long nanos) {
+            return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+        }
+    }
+
+    public static final class OperationSnapshot {
+        private final String operation;
+        private final long calls;
+        private final Map<String, Long> errorsByType;
+        private final double p50Micros;
+        private final double p99Micros;
+        private final double p999Micros;
+        private final double maxMicros;
+        private final double meanMicros;
+
+        private OperationSnapshot(String operation, long calls, Map<String, Long> errorsByType, double p50Micros,
+                double p99Micros, double p999Micros, double maxMicros, double meanMicros) {
+            this.operation = operation;
+            this.calls = calls;
+            this.errorsByType = Collections.unmodifiableMap(errorsByType);
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.p999Micros = p999Micros;
+            this.maxMicros = maxMicros;
+            this.meanMicros = meanMicros;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getErrors() {
+            return errorsByType.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public Map<String, Long> getErrorsByType() {
+            return errorsByType;
+        }
+
+        public double getP50Micros() {
+            return p50Micros;
+        }
+
+        public double getP99Micros() {
+            return p99Micros;
+        }
+
+        public double getP999Micros() {
+            return p999Micros;
+        }
+
+        public double getMaxMicros() {
+            return maxMicros;
+        }
+
+        public double getMeanMicros() {
+            return meanMicros;
+        }
+    }
+}
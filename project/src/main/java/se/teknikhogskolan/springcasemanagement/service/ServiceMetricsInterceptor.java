@@ -0,0 +1,32 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+
+import se.teknikhogskolan.springcasemanagement.service.ServiceMetrics.Operation;
+
+public class ServiceMetricsInterceptor implements MethodInterceptor {
+
+    private final ServiceMetrics metrics;
+
+    public ServiceMetricsInterceptor(ServiceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Class<?> service = invocation.getThis() == null ? invocation.getMethod().getDeclaringClass()
+                : AopUtils.getTargetClass(invocation.getThis());
+        Operation operation = metrics.operation(service, invocation.getMethod());
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            operation.completed(System.nanoTime() - start);
+            return result;
+        } catch (Throwable e) {
+            operation.failed(System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import java.util.List;
+
+import se.teknikhogskolan.springcasemanagement.service.ServiceMetrics.OperationSnapshot;
+
+public interface ServiceMetricsMXBean {
+
+    List<OperationSnapshot> getOperations();
+
+    String getReport();
+
+    void reset();
+}
@@ -1,10 +1,21 @@
 package se.teknikhogskolan.springcasemanagement.service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import se.teknikhogskolan.springcasemanagement.model.Team;
+import se.teknikhogskolan.springcasemanagement.model.Team.FetchPlan;
 import se.teknikhogskolan.springcasemanagement.model.User;
 import se.teknikhogskolan.springcasemanagement.repository.TeamRepository;
 import se.teknikhogskolan.springcasemanagement.repository.UserRepository;
@@ -21,32 +32,53 @@ public class TeamService {
         this.userRepository = userRepository;
     }
 
+    @Transactional(readOnly = true)
     public Team getById(Long teamId) {
-        Team team;
+        return getById(teamId, FetchPlan.DEFAULT);
+    }
+
+    @Transactional(readOnly = true)
+    public Team getById(Long teamId, FetchPlan fetchPlan) {
+        return findById(teamId, fetchPlan)
+                .orElseThrow(() -> new NoSearchResultException(() -> "Team with id '" + teamId + "' do not exist"));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Team> findById(Long teamId) {
+        return findById(teamId, FetchPlan.DEFAULT);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Team> findById(Long teamId, FetchPlan fetchPlan) {
         try {
-            team = teamRepository.findOne(teamId);
+            return Optional.ofNullable(findOne(teamId, fetchPlan));
         } catch (Exception e) {
             throw new ServiceException("Could not get team with id: " + teamId, e);
         }
+    }
 
-        if (team != null) {
-            return team;
-        } else
-            throw new NoSearchResultException("Team with id '" + teamId + "' do not exist");
+    private Team findOne(Long teamId, FetchPlan fetchPlan) {
+        switch (fetchPlan) {
+        case WITH_USERS:
+            return teamRepository.findWithUsersById(teamId);
+        default:
+            return teamRepository.findOne(teamId);
+        }
     }
 
+    @Transactional(readOnly = true)
     public Team getByName(String teamName) {
-        Team team;
+        return findByName(teamName).orElseThrow(
+                () -> new NoSearchResultException(() -> "Team with name '" + teamName + "' do not exist"));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Team> findByName(String teamName) {
         try {
-            team = teamRepository.findByName(teamName);
+            return Optional.ofNullable(teamRepository.findByName(teamName));
         } catch (Exception e) {
             throw new ServiceException("Could not get team with name: " + teamName, e);
         }
-
-        if (team != null) {
-            return team;
-        } else
-            throw new NoSearchResultException("Team with name '" + teamName + "' do not exist");
     }
 
     public Team create(String teamName) {
@@ -60,12 +92,42 @@ public class TeamService {
         }
     }
 
+    @Transactional
+    public BatchResult<Team> createAll(List<String> teamNames) {
+        Map<Integer, String> errors = new TreeMap<>();
+        List<Team> teams = new ArrayList<>();
+        if (teamNames.isEmpty()) {
+            return new BatchResult<>(teams, errors);
+        }
+        try {
+            Set<String> existingNames = teamRepository.findByNameIn(teamNames).stream()
+                    .map(Team::getName)
+                    .collect(Collectors.toSet());
+            Set<String> namesInBatch = new HashSet<>();
+            for (int row = 0; row < teamNames.size(); row++) {
+                String teamName = teamNames.get(row);
+                if (teamName == null) {
+                    errors.put(row, "Team name is missing");
+                } else if (existingNames.contains(teamName) || !namesInBatch.add(teamName)) {
+                    errors.put(row, "Team with name '" + teamName + "' already exists");
+                } else {
+                    teams.add(new Team(teamName));
+                }
+            }
+            List<Team> created = teams.isEmpty() ? teams : teamRepository.insertAll(teams);
+            return new BatchResult<>(created, errors);
+        } catch (Exception e) {
+            throw new ServiceException("Could not create batch of " + teamNames.size() + " teams", e);
+        }
+    }
+
+    @Transactional
     public Team updateName(Long teamId, String teamName) {
         try {
             Team team = teamRepository.findOne(teamId);
             if (team.isActive()) {
                 team.setName(teamName);
-                return teamRepository.save(team);
+                return teamRepository.saveAndFlush(team);
             } else
                 throw new ServiceException("Could not update "
                         + "name on team with id '" + teamId + "' since it's inactive.");
@@ -78,11 +140,12 @@ public class TeamService {
         }
     }
 
+    @Transactional
     public Team inactive(Long teamId) {
         try {
             Team team = teamRepository.findOne(teamId);
             team.setActive(false);
-            return teamRepository.save(team);
+            return teamRepository.saveAndFlush(team);
         } catch (NullPointerException e) {
             throw new NoSearchResultException("Failed to inactive team with id '"
                     + teamId + "' since it could not be found in the database", e);
@@ -91,11 +154,12 @@ public class TeamService {
         }
     }
 
+    @Transactional
     public Team activate(Long teamId) {
         try {
             Team team = teamRepository.findOne(teamId);
             team.setActive(true);
-            return teamRepository.save(team);
+            return teamRepository.saveAndFlush(team);
         } catch (NullPointerException e) {
             throw new NoSearchResultException("Failed to activate team with id '"
                     + teamId + "' since it could not be found in the database", e);
@@ -104,6 +168,7 @@ public class TeamService {
         }
     }
 
+    @Transactional(readOnly = true)
     public Iterable<Team> getAll() {
         Iterable<Team> teams;
         try {
@@ -118,10 +183,12 @@ public class TeamService {
         }
     }
 
+    @Transactional
+    @RetryOnOptimisticLock
     public Team addUserToTeam(Long teamId, Long userId) {
         try {
             User user = userRepository.findOne(userId);
-            Team team = teamRepository.findOne(teamId);
+            Team team = teamRepository.findLockedById(teamId);
 
             if (team == null || user == null) {
                 throw new NoSearchResultException("Team with id '"
@@ -130,11 +197,10 @@ public class TeamService {
                 throw new ServiceException("User with id '"
                         + userId + "' or Team with id '" + teamId + "' is inactive");
             } else {
-                if (team.getUsers().size() < 10) {
-                    System.out.println(team.getUsers());
+                if (userRepository.countByTeamId(teamId) < 10) {
                     user.setTeam(team);
                     userRepository.save(user);
-                    return teamRepository.findOne(teamId);
+                    return findOne(teamId, FetchPlan.WITH_USERS);
                 } else {
                     throw new ServiceException("Team with id '" + teamId + "' already contains 10 users");
                 }
@@ -147,6 +213,7 @@ public class TeamService {
         }
     }
 
+    @Transactional
     public Team removeUserFromTeam(Long teamId, Long userId) {
         try {
             User user = userRepository.findOne(userId);
@@ -160,8 +227,8 @@ public class TeamService {
                         + userId + "' or Team with id '" + teamId + "' is inactive");
             } else {
                 user.setTeam(null);
-                userRepository.save(user);
-                return teamRepository.findOne(teamId);
+                userRepository.saveAndFlush(user);
+                return teamRepository.findWithUsersById(teamId);
             }
         } catch (ServiceException e) {
             throw e;
@@ -1,22 +1,40 @@
 package se.teknikhogskolan.springcasemanagement.service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import se.teknikhogskolan.springcasemanagement.model.User;
+import se.teknikhogskolan.springcasemanagement.model.User.FetchPlan;
 import se.teknikhogskolan.springcasemanagement.model.WorkItem.Status;
 import se.teknikhogskolan.springcasemanagement.repository.UserRepository;
+import se.teknikhogskolan.springcasemanagement.repository.WorkItemRepository;
+import se.teknikhogskolan.springcasemanagement.search.SearchResults;
+import se.teknikhogskolan.springcasemanagement.search.UserSearchIndex;
 
 @Service
 public class UserService {
 
     private final UserRepository userRepository;
+    private final WorkItemRepository workItemRepository;
+    private final UserSearchIndex userSearchIndex;
 
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, WorkItemRepository workItemRepository,
+            UserSearchIndex userSearchIndex) {
         this.userRepository = userRepository;
+        this.workItemRepository = workItemRepository;
+        this.userSearchIndex = userSearchIndex;
     }
 
     public User create(Long userNumber, String username, String firstName, String lastName) {
@@ -31,42 +49,122 @@ public class UserService {
         }
     }
 
-    public User getById(Long userId) {
+    @Transactional
+    public BatchResult<User> createAll(List<User> users) {
+        Map<Integer, String> errors = new TreeMap<>();
+        List<User> validUsers = new ArrayList<>();
+        if (users.isEmpty()) {
+            return new BatchResult<>(validUsers, errors);
+        }
         try {
-            User user = userRepository.findOne(userId);
-            if (user == null) {
-                throw new NoSearchResultException("No user with id: " + userId + " found");
-            } else {
-                return user;
+            Set<Long> existingUserNumbers = userRepository
+                    .findByUserNumberIn(users.stream().map(User::getUserNumber).collect(Collectors.toSet()))
+                    .stream().map(User::getUserNumber).collect(Collectors.toSet());
+            Set<String> existingUsernames = userRepository
+                    .findByUsernameIn(users.stream().map(User::getUsername).collect(Collectors.toSet()))
+                    .stream().map(User::getUsername).collect(Collectors.toSet());
+            Set<Long> userNumbersInBatch = new HashSet<>();
+            Set<String> usernamesInBatch = new HashSet<>();
+            for (int row = 0; row < users.size(); row++) {
+                User user = users.get(row);
+                if (null == user.getUsername() || !usernameLongEnough(user.getUsername())) {
+                    errors.put(row, "Username too short");
+                } else if (existingUserNumbers.contains(user.getUserNumber())
+                        || !userNumbersInBatch.add(user.getUserNumber())) {
+                    errors.put(row, "User number " + user.getUserNumber() + " is already taken");
+                } else if (existingUsernames.contains(user.getUsername())
+                        || !usernamesInBatch.add(user.getUsername())) {
+                    errors.put(row, "Username " + user.getUsername() + " is already taken");
+                } else {
+                    validUsers.add(user);
+                }
             }
-        } catch (NoSearchResultException e) {
-            throw e;
+            List<User> created = validUsers.isEmpty() ? validUsers : userRepository.insertAll(validUsers);
+            return new BatchResult<>(created, errors);
+        } catch (Exception e) {
+            throw new ServiceException("Failed to create batch of " + users.size() + " users", e);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public User getById(Long userId) {
+        return getById(userId, FetchPlan.DEFAULT);
+    }
+
+    @Transactional(readOnly = true)
+    public User getById(Long userId, FetchPlan fetchPlan) {
+        return findById(userId, fetchPlan)
+                .orElseThrow(() -> new NoSearchResultException(() -> "No user with id: " + userId + " found"));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<User> findById(Long userId) {
+        return findById(userId, FetchPlan.DEFAULT);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<User> findById(Long userId, FetchPlan fetchPlan) {
+        try {
+            return Optional.ofNullable(fetchById(userId, fetchPlan));
         } catch (Exception e) {
             throw new ServiceException("Failed to get user with id: " + userId, e);
         }
     }
 
+    private User fetchById(Long userId, FetchPlan fetchPlan) {
+        switch (fetchPlan) {
+        case WITH_TEAM:
+            return userRepository.findWithTeamById(userId);
+        case WITH_WORK_ITEMS:
+            return userRepository.findWithWorkItemsById(userId);
+        default:
+            return userRepository.findOne(userId);
+        }
+    }
+
+    @Transactional(readOnly = true)
     public User getByUserNumber(Long userNumber) {
+        return getByUserNumber(userNumber, FetchPlan.DEFAULT);
+    }
+
+    @Transactional(readOnly = true)
+    public User getByUserNumber(Long userNumber, FetchPlan fetchPlan) {
+        return findByUserNumber(userNumber, fetchPlan).orElseThrow(
+                () -> new NoSearchResultException(() -> "No user with user number: " + userNumber + " found"));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<User> findByUserNumber(Long userNumber) {
+        return findByUserNumber(userNumber, FetchPlan.DEFAULT);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<User> findByUserNumber(Long userNumber, FetchPlan fetchPlan) {
         try {
-            User user = userRepository.findByUserNumber(userNumber);
-            if (user == null) {
-                throw new NoSearchResultException("No user with user number: " + userNumber + " found");
-            } else {
-                return user;
-            }
-        } catch (NoSearchResultException e) {
-            throw e;
+            return Optional.ofNullable(fetchByUserNumber(userNumber, fetchPlan));
         } catch (Exception e) {
             throw new ServiceException("Failed to get user with user number: " + userNumber, e);
         }
     }
 
+    private User fetchByUserNumber(Long userNumber, FetchPlan fetchPlan) {
+        switch (fetchPlan) {
+        case WITH_TEAM:
+            return userRepository.findWithTeamByUserNumber(userNumber);
+        case WITH_WORK_ITEMS:
+            return userRepository.findWithWorkItemsByUserNumber(userNumber);
+        default:
+            return userRepository.findByUserNumber(userNumber);
+        }
+    }
+
+    @Transactional
     public User updateFirstName(Long userNumber, String firstName) {
         try {
             User user = userRepository.findByUserNumber(userNumber);
             if (user.isActive()) {
                 user.setFirstName(firstName);
-                return userRepository.save(user);
+                return userRepository.saveAndFlush(user);
             } else {
                 throw new ServiceException("User is inactive");
             }
@@ -79,12 +177,13 @@ public class UserService {
         }
     }
 
+    @Transactional
     public User updateLastName(Long userNumber, String lastName) {
         try {
             User user = userRepository.findByUserNumber(userNumber);
             if (user.isActive()) {
                 user.setLastName(lastName);
-                return userRepository.save(user);
+                return userRepository.saveAndFlush(user);
             } else {
                 throw new ServiceException("User is inactive");
             }
@@ -97,13 +196,14 @@ public class UserService {
         }
     }
 
+    @Transactional
     public User updateUsername(Long userNumber, String username) {
         try {
             User user = userRepository.findByUserNumber(userNumber);
             if (user.isActive()) {
                 if (usernameLongEnough(username)) {
                     user.setUsername(username);
-                    return userRepository.save(user);
+                    return userRepository.saveAndFlush(user);
                 } else {
                     throw new ServiceException("Username too short");
                 }
@@ -119,11 +219,12 @@ public class UserService {
         }
     }
 
+    @Transactional
     public User activate(Long userNumber) {
         try {
             User user = userRepository.findByUserNumber(userNumber);
             user.setActive(true);
-            return userRepository.save(user);
+            return userRepository.saveAndFlush(user);
         } catch (NullPointerException e) {
             throw new NoSearchResultException("No user with user number: " + userNumber + " found", e);
         } catch (Exception e) {
@@ -131,14 +232,13 @@ public class UserService {
         }
     }
 
+    @Transactional
     public User inactivate(Long userNumber) {
         try {
             User user = userRepository.findByUserNumber(userNumber);
-            if (user.getWorkItems() != null) {
-                user.getWorkItems().forEach(workItem -> workItem.setStatus(Status.UNSTARTED));
-            }
+            workItemRepository.updateStatusByUserId(user.getId(), Status.UNSTARTED);
             user.setActive(false);
-            return userRepository.save(user);
+            return userRepository.saveAndFlush(user);
         } catch (NullPointerException e) {
             throw new NoSearchResultException("No user with user number: " + userNumber + " found", e);
         } catch (Exception e) {
@@ -146,33 +246,52 @@ public class UserService {
         }
     }
 
+    @Transactional
+    public int inactivateAllByTeamId(Long teamId) {
+        try {
+            workItemRepository.updateStatusByTeamId(teamId, Status.UNSTARTED);
+            return userRepository.inactivateByTeamId(teamId);
+        } catch (Exception e) {
+            throw new ServiceException("Failed to inactivate users with team id: " + teamId, e);
+        }
+    }
+
+    @Transactional(readOnly = true)
     public List<User> getAllByTeamId(Long teamId) {
+        List<User> users = findAllByTeamId(teamId);
+        if (users.isEmpty()) {
+            throw new NoSearchResultException(() -> "No users with team id: " + teamId + " found");
+        }
+        return users;
+    }
+
+    @Transactional(readOnly = true)
+    public List<User> findAllByTeamId(Long teamId) {
         try {
             List<User> users = userRepository.findByTeamId(teamId);
-            if (users == null || users.size() == 0) {
-                throw new NoSearchResultException("No users with team id: " + teamId + " found");
-            } else {
-                return users;
-            }
-        } catch (NoSearchResultException e) {
-            throw e;
+            return users == null ? Collections.emptyList() : users;
         } catch (Exception e) {
             throw new ServiceException("Failed to get all users with team id: " + teamId, e);
         }
     }
 
+    // Same matching and limit as findMatching
+    @Transactional(readOnly = true)
     public List<User> search(String firstName, String lastName, String username) {
+        List<User> users = findMatching(firstName, lastName, username);
+        if (users.isEmpty()) {
+            throw new NoSearchResultException(() -> "No users fulfilling criteria: " + "firstName = " + firstName
+                    + ", lastName = " + lastName + ", username = " + username);
+        }
+        return users;
+    }
+
+    // Case-insensitive "contains" on all three names, at most SearchResults.MAX_RESULTS users in id order
+    @Transactional(readOnly = true)
+    public List<User> findMatching(String firstName, String lastName, String username) {
         try {
-            List<User> users = userRepository
-                    .findByFirstNameContainingAndLastNameContainingAndUsernameContaining(firstName, lastName, username);
-            if (users == null || users.size() == 0) {
-                throw new NoSearchResultException("No users fulfilling criteria: " + "firstName = " + firstName
-                        + ", lastName = " + lastName + ", username = " + username);
-            } else {
-                return users;
-            }
-        } catch (NoSearchResultException e) {
-            throw e;
+            List<Long> ids = SearchResults.top(userSearchIndex.search(firstName, lastName, username));
+            return SearchResults.inRankOrder(ids, userRepository.findAll(ids));
         } catch (Exception e) {
             throw new ServiceException("Failed to get users with criteria: firstName = " + firstName + ", lastName = "
                     + lastName + ", username = " + username, e);
@@ -3,18 +3,36 @@ package se.teknikhogskolan.springcasemanagement.service;
 import static se.teknikhogskolan.springcasemanagement.model.WorkItem.Status.DONE;
 import static se.teknikhogskolan.springcasemanagement.model.WorkItem.Status.UNSTARTED;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import se.teknikhogskolan.springcasemanagement.model.Issue;
 import se.teknikhogskolan.springcasemanagement.model.User;
 import se.teknikhogskolan.springcasemanagement.model.WorkItem;
+import se.teknikhogskolan.springcasemanagement.model.WorkItem.FetchPlan;
 import se.teknikhogskolan.springcasemanagement.repository.IssueRepository;
 import se.teknikhogskolan.springcasemanagement.repository.UserRepository;
 import se.teknikhogskolan.springcasemanagement.repository.WorkItemRepository;
+import se.teknikhogskolan.springcasemanagement.search.DescriptionIndex;
+import se.teknikhogskolan.springcasemanagement.search.SearchResults;
 
 @Service
 public class WorkItemService {
@@ -22,18 +40,21 @@ public class WorkItemService {
     private final WorkItemRepository workItemRepository;
     private final UserRepository userRepository;
     private final IssueRepository issueRepository;
+    private final DescriptionIndex descriptionIndex;
 
     @Autowired
     public WorkItemService(WorkItemRepository workItemRepository, UserRepository userRepository,
-            IssueRepository issueRepository) {
+            IssueRepository issueRepository, DescriptionIndex descriptionIndex) {
         this.workItemRepository = workItemRepository;
         this.userRepository = userRepository;
         this.issueRepository = issueRepository;
+        this.descriptionIndex = descriptionIndex;
     }
 
+    @Transactional
     public WorkItem removeIssueFromWorkItem(Long workItemId) {
         try {
-            WorkItem workItem = workItemRepository.findOne(workItemId);
+            WorkItem workItem = workItemRepository.findWithIssueAndUserById(workItemId);
             Issue issue = workItem.getIssue();
             if (null == issue) {
                 throw new ServiceException(
@@ -41,6 +62,7 @@ public class WorkItemService {
             }
             workItem = workItemRepository.save(workItem.setIssue(null));
             issueRepository.delete(issue.getId());
+            issueRepository.flush();
             return workItem;
         } catch (ServiceException e) {
             throw e;
@@ -52,23 +74,17 @@ public class WorkItemService {
         }
     }
 
+    @Transactional(readOnly = true)
     public Collection<WorkItem> getAllWithIssue() {
-        Collection<WorkItem> workItems;
-        try {
-            workItems = workItemRepository.findByIssueIsNotNull();
-        } catch (Exception e) {
-            throw new ServiceException("Cannot get all WorkItems with Issue", e);
-        }
-        ifEmptyThrowNoSearchResultException(workItems);
-        return workItems;
+        return executeMany(WorkItemRepository::findByIssueIsNotNull, () -> "Cannot get all WorkItems with Issue");
     }
 
-    private void ifEmptyThrowNoSearchResultException(Collection collection) {
-        if (null == collection || collection.isEmpty()) {
-            throw new NoSearchResultException();
-        }
+    @Transactional(readOnly = true)
+    public Collection<WorkItem> findAllWithIssue() {
+        return findMany(WorkItemRepository::findByIssueIsNotNull, () -> "Cannot get all WorkItems with Issue");
     }
 
+    @Transactional
     public WorkItem addIssueToWorkItem(Long issueId, Long workItemId) {
         try {
             Issue issue = issueRepository.findOne(issueId);
@@ -79,7 +95,7 @@ public class WorkItemService {
             if (DONE.equals(workItem.getStatus())) {
                 workItem.setStatus(UNSTARTED);
                 workItem.setIssue(issue);
-                return workItemRepository.save(workItem);
+                return workItemRepository.saveAndFlush(workItem);
             } else
                 throw new ServiceException(
                         String.format("Issue can only be added to WorkItem with Status 'DONE', Status was '%s'",
@@ -103,26 +119,36 @@ public class WorkItemService {
         }
     }
 
+    @Transactional(readOnly = true)
     public Collection<WorkItem> getByTeamId(Long teamId) {
         return executeMany(workItemRepository -> {
-            return workItemRepository.findByTeamId(teamId);
-        }, String.format("Cannot not get WorkItems by Team id '%s'", teamId));
+            return workItemRepository.findWorkloadByTeamId(teamId);
+        }, () -> String.format("Cannot not get WorkItems by Team id '%s'", teamId));
+    }
+
+    @Transactional(readOnly = true)
+    public Collection<WorkItem> findByTeamId(Long teamId) {
+        return findMany(workItemRepository -> {
+            return workItemRepository.findWorkloadByTeamId(teamId);
+        }, () -> String.format("Cannot not get WorkItems by Team id '%s'", teamId));
     }
 
     private Collection<WorkItem> executeMany(Function<WorkItemRepository, Collection<WorkItem>> operation,
-            String exceptionMessage) {
-        Collection<WorkItem> result;
+            Supplier<String> exceptionMessage) {
+        Collection<WorkItem> result = findMany(operation, exceptionMessage);
+        if (result.isEmpty()) {
+            throw new NoSearchResultException(exceptionMessage);
+        }
+        return result;
+    }
+
+    private Collection<WorkItem> findMany(Function<WorkItemRepository, Collection<WorkItem>> operation,
+            Supplier<String> exceptionMessage) {
         try {
-            result = operation.apply(workItemRepository);
-            if (result.isEmpty())
-                throw new NoSearchResultException(exceptionMessage);
-            return result;
-        } catch (NoSearchResultException e) {
-            throw e;
-        } catch (NullPointerException e) {
-            throw new NoSearchResultException(exceptionMessage, e);
+            Collection<WorkItem> result = operation.apply(workItemRepository);
+            return null == result ? Collections.emptyList() : result;
         } catch (Exception e) {
-            throw new ServiceException(exceptionMessage, e);
+            throw new ServiceException(exceptionMessage.get(), e);
         }
     }
 
@@ -134,6 +160,39 @@ public class WorkItemService {
         }
     }
 
+    @Transactional
+    public BatchResult<WorkItem> createAll(List<String> descriptions) {
+        Map<Integer, String> errors = new TreeMap<>();
+        List<WorkItem> workItems = new ArrayList<>();
+        if (descriptions.isEmpty()) {
+            return new BatchResult<>(workItems, errors);
+        }
+        try {
+            Set<String> existingDescriptions = workItemRepository.findByDescriptionIn(descriptions).stream()
+                    .map(WorkItem::getDescription)
+                    .collect(Collectors.toSet());
+            Set<String> descriptionsInBatch = new HashSet<>();
+            for (int row = 0; row < descriptions.size(); row++) {
+                String description = descriptions.get(row);
+                if (null == description) {
+                    errors.put(row, "Description is missing");
+                } else if (existingDescriptions.contains(description)) {
+                    errors.put(row, String.format("WorkItem with description '%s' already exists", description));
+                } else if (!descriptionsInBatch.add(description)) {
+                    errors.put(row, String.format("Description '%s' occurs more than once in batch", description));
+                } else {
+                    workItems.add(new WorkItem(description));
+                }
+            }
+            List<WorkItem> created = workItems.isEmpty() ? workItems : workItemRepository.insertAll(workItems);
+            return new BatchResult<>(created, errors);
+        } catch (Exception e) {
+            throw new ServiceException(String.format("Cannot create batch of %d WorkItems", descriptions.size()), e);
+        }
+    }
+
+    @Transactional
+    @RetryOnOptimisticLock
     public WorkItem setStatus(Long workItemId, WorkItem.Status status) {
         try {
             WorkItem workItem = workItemRepository.findOne(workItemId);
@@ -147,20 +206,51 @@ public class WorkItemService {
         }
     }
 
+    @Transactional
+    public int setStatusByTeamId(Long teamId, WorkItem.Status from, WorkItem.Status to) {
+        try {
+            return workItemRepository.updateStatusByTeamIdAndStatus(teamId, from, to);
+        } catch (Exception e) {
+            throw new ServiceException(String.format(
+                    "Cannot set Status '%s' on WorkItems with Status '%s' in Team '%s'", to, from, teamId), e);
+        }
+    }
+
+    @Transactional(readOnly = true)
     public WorkItem getById(Long workItemId) {
+        return getById(workItemId, FetchPlan.DEFAULT);
+    }
+
+    @Transactional(readOnly = true)
+    public WorkItem getById(Long workItemId, FetchPlan fetchPlan) {
+        return findById(workItemId, fetchPlan).orElseThrow(() -> new NoSearchResultException(
+                () -> String.format("Cannot find WorkItem with id %d", workItemId)));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<WorkItem> findById(Long workItemId) {
+        return findById(workItemId, FetchPlan.DEFAULT);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<WorkItem> findById(Long workItemId, FetchPlan fetchPlan) {
         try {
-            WorkItem workItem = workItemRepository.findOne(workItemId);
-            if (null == workItem) {
-                throw new NoSearchResultException(String.format("Cannot find WorkItem with id %d", workItemId));
-            }
-            return workItem;
-        } catch (NoSearchResultException e) {
-            throw e;
+            return Optional.ofNullable(findOne(workItemId, fetchPlan));
         } catch (Exception e) {
             throw new ServiceException(String.format("Cannot get WorkItem with id %d", workItemId), e);
         }
     }
 
+    private WorkItem findOne(Long workItemId, FetchPlan fetchPlan) {
+        switch (fetchPlan) {
+        case WITH_ISSUE_AND_USER:
+            return workItemRepository.findWithIssueAndUserById(workItemId);
+        default:
+            return workItemRepository.findOne(workItemId);
+        }
+    }
+
+    @Transactional
     public WorkItem removeById(Long workItemId) {
         try {
             WorkItem workItem = workItemRepository.findOne(workItemId);
@@ -168,6 +258,7 @@ public class WorkItemService {
                 throw new NoSearchResultException(String.format("Cannot find WorkItem with id %d", workItemId));
             }
             workItemRepository.delete(workItem);
+            workItemRepository.flush();
             return workItem;
         } catch (NoSearchResultException e) {
             throw e;
@@ -176,28 +267,134 @@ public class WorkItemService {
         }
     }
 
+    @Transactional(readOnly = true)
+    public void forEach(Consumer<WorkItem> action) {
+        consume(workItemRepository -> workItemRepository.streamAll(), action, "Cannot stream all WorkItems");
+    }
+
+    @Transactional(readOnly = true)
+    public void forEachByStatus(WorkItem.Status status, Consumer<WorkItem> action) {
+        consume(workItemRepository -> workItemRepository.streamByStatus(status), action,
+                String.format("Cannot stream WorkItems by Status '%s'", status));
+    }
+
+    private void consume(Function<WorkItemRepository, Stream<WorkItem>> query, Consumer<WorkItem> action,
+            String exceptionMessage) {
+        try (Stream<WorkItem> workItems = query.apply(workItemRepository)) {
+            workItems.forEach(action);
+        } catch (ServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ServiceException(exceptionMessage, e);
+        }
+    }
+
+    @Transactional(readOnly = true)
     public Collection<WorkItem> getByStatus(WorkItem.Status status) {
         return executeMany(workItemRepository -> {
             return workItemRepository.findByStatus(status);
-        }, String.format("Cannot get WorkItems by Status '%s'", status));
+        }, () -> String.format("Cannot get WorkItems by Status '%s'", status));
+    }
+
+    @Transactional(readOnly = true)
+    public Collection<WorkItem> findByStatus(WorkItem.Status status) {
+        return findMany(workItemRepository -> {
+            return workItemRepository.findByStatus(status);
+        }, () -> String.format("Cannot get WorkItems by Status '%s'", status));
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<WorkItem> getAllAfter(Long afterId, int limit) {
+        Pageable pageable = Keyset.limit(limit);
+        return executeSlice(workItemRepository -> {
+            return workItemRepository.findByIdGreaterThanOrderByIdAsc(Keyset.after(afterId), pageable);
+        }, limit, () -> String.format("Cannot get WorkItems after id '%s'", afterId));
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<WorkItem> getByStatusAfter(WorkItem.Status status, Long afterId, int limit) {
+        Pageable pageable = Keyset.limit(limit);
+        return executeSlice(workItemRepository -> {
+            return workItemRepository.findByStatusAndIdGreaterThanOrderByIdAsc(status, Keyset.after(afterId),
+                    pageable);
+        }, limit, () -> String.format("Cannot get WorkItems by Status '%s' after id '%s'", status, afterId));
     }
 
+    @Transactional(readOnly = true)
+    public Slice<WorkItem> getAllWithIssueAfter(Long afterId, int limit) {
+        Pageable pageable = Keyset.limit(limit);
+        return executeSlice(workItemRepository -> {
+            return workItemRepository.findByIssueIsNotNullAndIdGreaterThanOrderByIdAsc(Keyset.after(afterId), pageable);
+        }, limit, () -> String.format("Cannot get WorkItems with Issue after id '%s'", afterId));
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<WorkItem> getByUserNumberAfter(Long userNumber, Long afterId, int limit) {
+        Pageable pageable = Keyset.limit(limit);
+        User user = userRepository.findByUserNumber(userNumber);
+        if (null == user) {
+            throw new NoSearchResultException(
+                    () -> String.format("Cannot find User with usernNumber '%d'", userNumber));
+        }
+        return executeSlice(workItemRepository -> {
+            return workItemRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(user.getId(), Keyset.after(afterId),
+                    pageable);
+        }, limit, () -> String.format("Cannot get WorkItems by userNumber '%d' after id '%s'", userNumber, afterId));
+    }
+
+    private Slice<WorkItem> executeSlice(Function<WorkItemRepository, List<WorkItem>> operation, int limit,
+            Supplier<String> exceptionMessage) {
+        try {
+            return Keyset.toSlice(operation.apply(workItemRepository), limit);
+        } catch (Exception e) {
+            throw new ServiceException(exceptionMessage.get(), e);
+        }
+    }
+
+    @Transactional(readOnly = true)
     public Collection<WorkItem> getByUserNumber(Long userNumber) {
         User user = userRepository.findByUserNumber(userNumber);
         if (null == user) {
-            throw new NoSearchResultException(String.format("Cannot find User with usernNumber '%d'", userNumber));
+            throw new NoSearchResultException(
+                    () -> String.format("Cannot find User with usernNumber '%d'", userNumber));
         }
         return executeMany(workItemRepository -> {
             return workItemRepository.findByUserId(user.getId());
-        }, String.format("Cannot get WorkItems by userNumber '%d'", userNumber));
+        }, () -> String.format("Cannot get WorkItems by userNumber '%d'", userNumber));
+    }
+
+    @Transactional(readOnly = true)
+    public Collection<WorkItem> findByUserNumber(Long userNumber) {
+        return findMany(workItemRepository -> {
+            User user = userRepository.findByUserNumber(userNumber);
+            return null == user ? null : workItemRepository.findByUserId(user.getId());
+        }, () -> String.format("Cannot get WorkItems by userNumber '%d'", userNumber));
     }
 
+    // Work items with a description token starting with each word of the text, best match first. Only the best
+    // SearchResults.MAX_RESULTS are returned, so a result of that size may have been cut short.
+    @Transactional(readOnly = true)
     public Collection<WorkItem> getByDescriptionContains(String text) {
-        return executeMany(workItemRepository -> {
-            return workItemRepository.findByDescriptionContains(text);
-        }, String.format("Cannot get WorkItems by description contains '%s'", text));
+        return executeMany(descriptionSearch(text),
+                () -> String.format("Cannot get WorkItems by description contains '%s'", text));
+    }
+
+    // Same matching and limit as getByDescriptionContains
+    @Transactional(readOnly = true)
+    public Collection<WorkItem> findByDescriptionContains(String text) {
+        return findMany(descriptionSearch(text),
+                () -> String.format("Cannot get WorkItems by description contains '%s'", text));
+    }
+
+    private Function<WorkItemRepository, Collection<WorkItem>> descriptionSearch(String text) {
+        return workItemRepository -> {
+            List<Long> rankedIds = SearchResults.top(descriptionIndex.search(WorkItem.class, text));
+            return SearchResults.inRankOrder(rankedIds, workItemRepository.findAll(rankedIds));
+        };
     }
 
+    @Transactional
+    @RetryOnOptimisticLock
     public WorkItem setUser(Long userNumber, Long workItemId) {
         User user = getUserByUsernumber(userNumber);
         if (userCanHaveOneMoreWorkItem(user)) {
@@ -227,7 +424,7 @@ public class WorkItemService {
     private User getUserByUsernumber(Long userNumber) {
         User user;
         try {
-            user = userRepository.findByUserNumber(userNumber);
+            user = userRepository.findLockedByUserNumber(userNumber);
         } catch (Exception e) {
             throw new ServiceException(String.format("Cannot get User by userNumber '%d'", userNumber), e);
         }
@@ -245,9 +442,8 @@ public class WorkItemService {
     }
 
     private boolean userHasRoomForOneMoreWorkItem(User user) {
-        Collection<WorkItem> workItemsToThisUser = workItemRepository.findByUserId(user.getId());
         final int maxAllowedWorkItemsPerUser = 5;
-        if (workItemsToThisUser.size() < maxAllowedWorkItemsPerUser)
+        if (workItemRepository.countByUserId(user.getId()) < maxAllowedWorkItemsPerUser)
             return true;
         return false;
     }
@@ -0,0 +1,101 @@
+package se.teknikhogskolan.springcasemanagement.tracing;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Appends one JSON object per span to a file. Written through once a root span finishes, so that a trace reaches
+// the file as a whole. A span that can't be written is dropped, tracing must not fail the traced call.
+public class FileSpanExporter implements SpanExporter, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(FileSpanExporter.class);
+
+    private final Writer writer;
+    private boolean failed;
+
+    public FileSpanExporter(Path file) throws IOException {
+        this.writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+
+    @Override
+    public synchronized void export(Span span) {
+        try {
+            writer.write(toJson(span));
+            writer.write('\n');
+            if (span.getParentId() == null) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            if (!failed) {
+                failed = true;
+                LOG.warn("Could not write span {}, dropping spans that fail to write", span.getName(), e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    static String toJson(Span span) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"traceId\":\"").append(span.getTraceId()).append("\",\"spanId\":\"").append(span.getSpanId())
+                .append('"');
+        if (span.getParentId() != null) {
+            json.append(",\"parentId\":\"").append(span.getParentId()).append('"');
+        }
+        json.append(",\"name\":");
+        quote(json, span.getName());
+        json.append(",\"thread\":");
+        quote(json, span.getThread());
+        json.append(",\"startMicros\":").append(span.getStartEpochMicros()).append(",\"durationMicros\":")
+                .append(TimeUnit.NANOSECONDS.toMicros(span.getDurationNanos()));
+        if (span.getError() != null) {
+            json.append(",\"error\":");
+            quote(json, span.getError());
+        }
+        if (!span.getAttributes().isEmpty()) {
+            json.append(",\"attributes\":{");
+            String separator = "";
+            for (Map.Entry<String, Object> attribute : span.getAttributes().entrySet()) {
+                json.append(separator);
+                quote(json, attribute.getKey());
+                json.append(':');
+                if (attribute.getValue() instanceof Number || attribute.getValue() instanceof Boolean) {
+                    json.append(attribute.getValue());
+                } else {
+                    quote(json, String.valueOf(attribute.getValue()));
+                }
+                separator = ",";
+            }
+            json.append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    private static void quote(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
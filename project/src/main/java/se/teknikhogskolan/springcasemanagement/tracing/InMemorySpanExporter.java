@@ -0,0 +1,45 @@
+package se.teknikhogskolan.springcasemanagement.tracing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Keeps the most recent spans, dropping the oldest beyond the capacity
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final int capacity;
+    private final Deque<Span> spans;
+
+    public InMemorySpanExporter(int capacity) {
+        this.capacity = capacity;
+        this.spans = new ArrayDeque<>(Math.min(capacity, 1024));
+    }
+
+    @Override
+    public synchronized void export(Span span) {
+        if (spans.size() == capacity) {
+            spans.removeFirst();
+        }
+        spans.addLast(span);
+    }
+
+    // In the order they finished, children before their parents
+    public synchronized List<Span> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    public synchronized List<Span> getTrace(String traceId) {
+        List<Span> trace = new ArrayList<>();
+        for (Span span : spans) {
+            if (span.getTraceId().equals(traceId)) {
+                trace.add(span);
+            }
+        }
+        return trace;
+    }
+
+    public synchronized void clear() {
+        spans.clear();
+    }
+}
@@ -0,0 +1,116 @@
+package se.teknikhogskolan.springcasemanagement.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// A timed operation within a trace. Opened with Tracer.start and closed on the same thread, normally with
+// try-with-resources. Spans of a trace that is not sampled, or of a disabled tracer, record nothing.
+public final class Span implements AutoCloseable {
+
+    static final Span DISABLED = new Span(null, null, null, null, null, false);
+
+    private final Tracer tracer;
+    private final Span outer;
+    private final String traceId;
+    private final String spanId;
+    private final String parentId;
+    private final String name;
+    private final boolean sampled;
+    private final String thread;
+    private final long startEpochMicros;
+    private final long startNanos;
+    private long durationNanos = -1;
+    private String error;
+    private Map<String, Object> attributes;
+
+    Span(Tracer tracer, Span outer, String traceId, String parentId, String name, boolean sampled) {
+        this.tracer = tracer;
+        this.outer = outer;
+        this.traceId = traceId;
+        this.spanId = sampled ? Tracer.newId(1) : null;
+        this.parentId = parentId;
+        this.name = name;
+        this.sampled = sampled;
+        this.thread = sampled ? Thread.currentThread().getName() : null;
+        this.startEpochMicros = sampled ? TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()) : 0;
+        this.startNanos = sampled ? System.nanoTime() : 0;
+    }
+
+    public Span setAttribute(String key, Object value) {
+        if (sampled) {
+            if (attributes == null) {
+                attributes = new LinkedHashMap<>();
+            }
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    public Span setError(Throwable error) {
+        if (sampled) {
+            this.error = error.getClass().getSimpleName();
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (tracer != null && durationNanos < 0) {
+            durationNanos = sampled ? System.nanoTime() - startNanos : 0;
+            tracer.finish(this);
+        }
+    }
+
+    Span getOuter() {
+        return outer;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    // Null for the root span of a trace
+    public String getParentId() {
+        return parentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public long getStartEpochMicros() {
+        return startEpochMicros;
+    }
+
+    // Negative while the span is open
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Map<String, Object> getAttributes() {
+        return attributes == null ? Collections.emptyMap() : Collections.unmodifiableMap(attributes);
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + TimeUnit.NANOSECONDS.toMicros(durationNanos) + " us" + (error == null ? "" : " " + error);
+    }
+}
@@ -0,0 +1,7 @@
+package se.teknikhogskolan.springcasemanagement.tracing;
+
+// Called once per finished span, on the thread that finished it
+public interface SpanExporter {
+
+    void export(Span span);
+}
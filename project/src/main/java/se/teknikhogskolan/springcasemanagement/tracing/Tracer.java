@@ -0,0 +1,106 @@
+package se.teknikhogskolan.springcasemanagement.tracing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Keeps the open span of each thread, so that spans started while it is open become its children. Work handed to
+// another thread joins the trace through wrap.
+//
+//     try (Span span = tracer.start("TeamService.addUserToTeam")) {
+//         ...
+//     }
+public class Tracer implements Closeable {
+
+    private final ThreadLocal<Span> current = new ThreadLocal<>();
+    private final SpanExporter exporter;
+    private final double sampleRate;
+
+    // A null exporter disables tracing. sampleRate is the fraction of traces that are recorded.
+    public Tracer(SpanExporter exporter, double sampleRate) {
+        this.exporter = exporter;
+        this.sampleRate = sampleRate;
+    }
+
+    public boolean isEnabled() {
+        return exporter != null;
+    }
+
+    public SpanExporter getExporter() {
+        return exporter;
+    }
+
+    public Span start(String name) {
+        if (exporter == null) {
+            return Span.DISABLED;
+        }
+        Span parent = current.get();
+        Span span;
+        if (parent == null) {
+            boolean sampled = sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+            span = new Span(this, null, sampled ? newId(2) : null, null, name, sampled);
+        } else {
+            span = new Span(this, parent, parent.getTraceId(), parent.getSpanId(), name, parent.isSampled());
+        }
+        current.set(span);
+        return span;
+    }
+
+    // Null when no span is open on this thread
+    public Span currentSpan() {
+        return current.get();
+    }
+
+    // Runs the task with the span open here, if any, as the parent of the spans it starts
+    public <T> Supplier<T> wrap(Supplier<T> task) {
+        Span parent = current.get();
+        if (parent == null) {
+            return task;
+        }
+        return () -> {
+            Span outer = current.get();
+            current.set(parent);
+            try {
+                return task.get();
+            } finally {
+                restore(outer);
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (exporter instanceof Closeable) {
+            ((Closeable) exporter).close();
+        }
+    }
+
+    void finish(Span span) {
+        restore(span.getOuter());
+        if (span.isSampled()) {
+            exporter.export(span);
+        }
+    }
+
+    private void restore(Span span) {
+        if (span == null) {
+            current.remove();
+        } else {
+            current.set(span);
+        }
+    }
+
+    // Lower case hex of 64 random bits per word
+    static String newId(int words) {
+        StringBuilder id = new StringBuilder(16 * words);
+        for (int i = 0; i < words; i++) {
+            String word = Long.toHexString(ThreadLocalRandom.current().nextLong());
+            for (int padding = word.length(); padding < 16; padding++) {
+                id.append('0');
+            }
+            id.append(word);
+        }
+        return id.toString();
+    }
+}
@@ -4,12 +4,16 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import se.teknikhogskolan.springcasemanagement.config.AllConfigTests;
 import se.teknikhogskolan.springcasemanagement.model.AllModelTests;
 import se.teknikhogskolan.springcasemanagement.repository.AllRepositoryTests;
+import se.teknikhogskolan.springcasemanagement.search.AllSearchTests;
 import se.teknikhogskolan.springcasemanagement.service.AllServiceTests;
+import se.teknikhogskolan.springcasemanagement.tracing.AllTracingTests;
 
 @RunWith(Suite.class)
-@SuiteClasses({AllServiceTests.class, AllRepositoryTests.class, AllModelTests.class})
+@SuiteClasses({AllServiceTests.class, AllRepositoryTests.class, AllModelTests.class, AllSearchTests.class,
+        AllConfigTests.class, AllTracingTests.class})
 public class AllTests {
 
 }
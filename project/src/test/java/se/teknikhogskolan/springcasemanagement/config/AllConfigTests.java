@@ -0,0 +1,11 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({ TestConnectionPoolMetrics.class, TestReadWriteRoutingDataSource.class, TestReadWriteSplitting.class,
+        TestMetricsPublisher.class, TestSqlBudgetInterceptor.class, TestQueryStatistics.class,
+        TestFlightRecorderEvents.class })
+public class AllConfigTests {}
@@ -0,0 +1,67 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.zaxxer.hikari.metrics.MetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+public final class TestConnectionPoolMetrics {
+
+    private ConnectionPoolMetrics metrics;
+    private MetricsTracker tracker;
+
+    @Before
+    public void setUp() {
+        metrics = new ConnectionPoolMetrics();
+        tracker = metrics.create("casemanagement", new PoolStats(0) {
+            @Override
+            protected void update() {
+                totalConnections = 10;
+                idleConnections = 7;
+                activeConnections = 3;
+                pendingThreads = 1;
+            }
+        });
+    }
+
+    @Test
+    public void reportsPoolStateFromHikari() {
+        assertEquals(10, metrics.getTotalConnections());
+        assertEquals(7, metrics.getIdleConnections());
+        assertEquals(3, metrics.getActiveConnections());
+        assertEquals(1, metrics.getPendingThreads());
+    }
+
+    @Test
+    public void averagesAndMaximumOfCheckoutWait() {
+        tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(3));
+        tracker.recordConnectionUsageMillis(10);
+        tracker.recordConnectionUsageMillis(20);
+        tracker.recordConnectionTimeout();
+
+        assertEquals(2, metrics.getCheckoutCount());
+        assertEquals(2.0, metrics.getAverageWaitMillis(), 0.001);
+        assertEquals(3.0, metrics.getMaxWaitMillis(), 0.001);
+        assertEquals(15.0, metrics.getAverageUsageMillis(), 0.001);
+        assertEquals(1, metrics.getTimeoutCount());
+    }
+
+    @Test
+    public void clearResetsCounters() {
+        tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(5));
+        tracker.recordConnectionTimeout();
+
+        metrics.clear();
+
+        assertEquals(0, metrics.getCheckoutCount());
+        assertEquals(0, metrics.getTimeoutCount());
+        assertEquals(0.0, metrics.getAverageWaitMillis(), 0.001);
+        assertEquals(0.0, metrics.getMaxWaitMillis(), 0.001);
+    }
+}
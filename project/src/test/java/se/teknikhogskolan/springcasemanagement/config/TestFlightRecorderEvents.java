@@ -0,0 +1,119 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import se.teknikhogskolan.springcasemanagement.service.TeamService;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class TestFlightRecorderEvents {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private MethodInvocation invocation;
+
+    // Unique per test, since the string pool of JDK 8's flight recorder can leave a string that an earlier
+    // recording held out of the next one
+    private final long teamId = System.nanoTime();
+    private Recording recording;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(FlightRecorder.AVAILABLE);
+        recording = new Recording();
+        recording.enable(ServiceOperationEvent.class);
+        recording.enable(TransactionEvent.class);
+        recording.start();
+
+        when(invocation.getMethod()).thenReturn(TeamService.class.getMethod("addUserToTeam", Long.class, Long.class));
+        when(invocation.getArguments()).thenReturn(new Object[] { teamId, 7L });
+    }
+
+    @After
+    public void tearDown() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    @Test
+    public void serviceCallsAreRecordedWithTheirIdsAndStatements() throws Throwable {
+        when(invocation.proceed()).thenAnswer(call -> {
+            SqlStatistics.recordStatement();
+            SqlStatistics.recordRow();
+            return "team";
+        });
+
+        assertEquals("team", new FlightRecorderInterceptor().invoke(invocation));
+
+        RecordedEvent event = events("se.teknikhogskolan.springcasemanagement.ServiceOperation").get(0);
+        assertEquals("TeamService.addUserToTeam", event.getString("operation"));
+        assertEquals("teamId=" + teamId + ", userId=7", event.getString("entityIds"));
+        assertEquals("OK", event.getString("outcome"));
+        assertNull(event.getClass("exception"));
+        assertEquals(1, event.getLong("statements"));
+        assertEquals(1, event.getLong("rows"));
+    }
+
+    @Test
+    public void failedCallsAreRecordedWithTheException() throws Throwable {
+        when(invocation.proceed()).thenThrow(new IllegalStateException("Over budget"));
+
+        try {
+            new FlightRecorderInterceptor().invoke(invocation);
+        } catch (IllegalStateException expected) {
+            // Recorded below
+        }
+
+        RecordedEvent event = events("se.teknikhogskolan.springcasemanagement.ServiceOperation").get(0);
+        assertEquals("FAILED", event.getString("outcome"));
+        assertEquals(IllegalStateException.class.getName(), event.getClass("exception").getName());
+    }
+
+    @Test
+    public void transactionsAreRecordedWithTheirStatements() throws IOException {
+        TransactionRecording transaction = TransactionRecording.begin("TeamService.addUserToTeam", false);
+        SqlStatistics.recordConnection();
+        SqlStatistics.recordStatement();
+        SqlStatistics.recordStatement();
+        transaction.committed();
+        transaction.end();
+
+        RecordedEvent event = events("se.teknikhogskolan.springcasemanagement.Transaction").get(0);
+        assertEquals("TeamService.addUserToTeam", event.getString("name"));
+        assertEquals("COMMITTED", event.getString("outcome"));
+        assertEquals(2, event.getLong("statements"));
+        assertEquals(1, event.getLong("connections"));
+    }
+
+    private List<RecordedEvent> events(String name) throws IOException {
+        recording.stop();
+        Path file = folder.getRoot().toPath().resolve("recording.jfr");
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(name)).collect(Collectors.toList());
+    }
+}
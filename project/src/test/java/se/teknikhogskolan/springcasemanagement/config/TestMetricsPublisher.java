@@ -0,0 +1,105 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import se.teknikhogskolan.springcasemanagement.service.ServiceMetrics;
+import se.teknikhogskolan.springcasemanagement.service.TeamService;
+
+public final class TestMetricsPublisher {
+    private static final String NAME = "metrics-publisher-test";
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    private ServiceMetrics metrics;
+    private QueryStatistics queryStatistics;
+    private MetricsPublisher publisher;
+    private ObjectName objectName;
+    private ObjectName queryStatisticsName;
+
+    @Before
+    public void setUp() throws Exception {
+        metrics = new ServiceMetrics();
+        metrics.operation(TeamService.class, TeamService.class.getMethod("getById", Long.class)).completed(1500);
+        queryStatistics = new QueryStatistics(-1, 0);
+        queryStatistics.query("TeamRepository.findOne").executed(1500, 0, "select", null);
+        publisher = new MetricsPublisher(metrics, queryStatistics, NAME, true, "127.0.0.1", 0);
+        objectName = new ObjectName("se.teknikhogskolan.springcasemanagement:type=ServiceMetrics,name=\"" + NAME
+                + "\"");
+        queryStatisticsName = new ObjectName("se.teknikhogskolan.springcasemanagement:type=QueryStatistics,name=\""
+                + NAME + "\"");
+    }
+
+    @After
+    public void tearDown() {
+        publisher.close();
+    }
+
+    @Test
+    public void operationsArePublishedOverJmx() throws Exception {
+        CompositeData[] operations = (CompositeData[]) mBeanServer.getAttribute(objectName, "Operations");
+
+        assertEquals(1, operations.length);
+        assertEquals("TeamService.getById", operations[0].get("operation"));
+        assertEquals(1L, operations[0].get("calls"));
+        assertTrue((Double) operations[0].get("p50Micros") >= 1.0);
+    }
+
+    @Test
+    public void queryStatisticsArePublishedOverJmx() throws Exception {
+        CompositeData[] queries = (CompositeData[]) mBeanServer.getAttribute(queryStatisticsName, "Queries");
+
+        assertEquals(1, queries.length);
+        assertEquals("TeamRepository.findOne", queries[0].get("origin"));
+        assertEquals(1L, queries[0].get("executions"));
+    }
+
+    @Test
+    public void reportIsServedOverHttp() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                "http://127.0.0.1:" + publisher.getHttpPort() + "/metrics").openConnection();
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals(metrics.getReport() + queryStatistics.getReport(), read(connection.getInputStream()));
+    }
+
+    @Test
+    public void httpListensOnTheGivenHostOnly() {
+        assertTrue(publisher.getHttpAddress().getAddress().isLoopbackAddress());
+    }
+
+    @Test
+    public void closeUnregistersTheMBean() {
+        publisher.close();
+
+        assertFalse(mBeanServer.isRegistered(objectName));
+        assertFalse(mBeanServer.isRegistered(queryStatisticsName));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream body = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read = body.read(buffer); read != -1; read = body.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.data.repository.Repository;
+
+import se.teknikhogskolan.springcasemanagement.config.QueryStatistics.QuerySnapshot;
+import se.teknikhogskolan.springcasemanagement.repository.UserRepository;
+import se.teknikhogskolan.springcasemanagement.service.UserService;
+
+public final class TestQueryStatistics {
+
+    private final QueryStatistics statistics = new QueryStatistics(10, 1.0);
+
+    @Test
+    public void executionsRowsAndTimeAddUpPerOrigin() {
+        QueryStatistics.Query query = statistics.query("UserRepository.findByTeamId");
+        query.executed(TimeUnit.MILLISECONDS.toNanos(2), 0, "select", null);
+        query.row();
+        query.row();
+        query.executed(TimeUnit.MILLISECONDS.toNanos(4), 0, "select", null);
+
+        QuerySnapshot snapshot = statistics.getQuery("UserRepository.findByTeamId");
+        assertEquals(2, snapshot.getExecutions());
+        assertEquals(2, snapshot.getRows());
+        assertEquals(6.0, snapshot.getTotalMillis(), 0.001);
+        assertEquals(3.0, snapshot.getMeanMillis(), 0.001);
+        assertEquals(4.0, snapshot.getMaxMillis(), 0.001);
+        assertEquals(0, snapshot.getSlowExecutions());
+    }
+
+    @Test
+    public void updateCountsAreRows() {
+        statistics.query("UserService.update").executed(1000, 3, "update", null);
+
+        assertEquals(3, statistics.getQuery("UserService.update").getRows());
+    }
+
+    @Test
+    public void statementsOverTheThresholdAreSlow() {
+        QueryStatistics.Query query = statistics.query("UserRepository.findAll");
+        query.executed(TimeUnit.MILLISECONDS.toNanos(9), 0, "select", null);
+        query.executed(TimeUnit.MILLISECONDS.toNanos(10), 0, "select", null);
+
+        assertEquals(1, statistics.getQuery("UserRepository.findAll").getSlowExecutions());
+    }
+
+    @Test
+    public void negativeThresholdTurnsTheSlowQueryLogOff() {
+        QueryStatistics off = new QueryStatistics(-1, 1.0);
+        off.query("UserRepository.findAll").executed(TimeUnit.SECONDS.toNanos(10), 0, "select", null);
+
+        assertEquals(0, off.getQuery("UserRepository.findAll").getSlowExecutions());
+        assertFalse(off.capturesBinds());
+    }
+
+    @Test
+    public void queriesAreListedSlowestFirst() {
+        statistics.query("fast").executed(1000, 0, "select", null);
+        statistics.query("slow").executed(2000, 0, "select", null);
+
+        List<QuerySnapshot> queries = statistics.getQueries();
+        assertEquals("slow", queries.get(0).getOrigin());
+        assertEquals("fast", queries.get(1).getOrigin());
+    }
+
+    @Test
+    public void reportHasACounterPerOrigin() {
+        statistics.query("UserRepository.findByTeamId").executed(1000, 0, "select", null);
+
+        String report = statistics.getReport();
+        assertTrue(report, report
+                .contains("casemanagement_sql_executions_total{origin=\"UserRepository.findByTeamId\"} 1\n"));
+        assertTrue(report, report.contains("# TYPE casemanagement_sql_max_seconds gauge\n"));
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        statistics.query("UserRepository.findAll").executed(1000, 0, "select", null);
+        statistics.reset();
+
+        assertNull(statistics.getQuery("UserRepository.findAll"));
+    }
+
+    @Test
+    public void originIsTheRepositoryInterfaceOrTheClass() {
+        Class<?> repositoryProxy = Proxy.getProxyClass(getClass().getClassLoader(), UserRepository.class,
+                Repository.class);
+
+        assertEquals("UserRepository", QueryOriginInterceptor.typeName(repositoryProxy));
+        assertEquals("UserService", QueryOriginInterceptor.typeName(UserService.class));
+    }
+}
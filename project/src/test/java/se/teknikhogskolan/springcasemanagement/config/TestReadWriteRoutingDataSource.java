@@ -0,0 +1,130 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class TestReadWriteRoutingDataSource {
+
+    private DataSource primary;
+    private DataSource firstReplica;
+    private DataSource secondReplica;
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Before
+    public void setUp() {
+        primary = mock(DataSource.class);
+        firstReplica = mock(DataSource.class);
+        secondReplica = mock(DataSource.class);
+        routingDataSource = new ReadWriteRoutingDataSource(primary, Arrays.asList(firstReplica, secondReplica));
+        routingDataSource.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void readWriteWorkGoesToPrimary() throws SQLException {
+        routingDataSource.getConnection();
+
+        verify(primary).getConnection();
+        verify(firstReplica, never()).getConnection();
+    }
+
+    @Test
+    public void readOnlyWorkIsSpreadOverReplicas() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        routingDataSource.getConnection();
+        routingDataSource.getConnection();
+        routingDataSource.getConnection();
+
+        verify(firstReplica, times(2)).getConnection();
+        verify(secondReplica).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    public void readOnlyWorkAfterWriteInScopeGoesToPrimary() throws SQLException {
+        try (ReadYourWrites request = ReadYourWrites.begin()) {
+            routingDataSource.getConnection();
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            routingDataSource.getConnection();
+        }
+
+        verify(primary, times(2)).getConnection();
+        verify(firstReplica, never()).getConnection();
+    }
+
+    @Test
+    public void closingOutermostScopeForgetsWrites() throws SQLException {
+        try (ReadYourWrites request = ReadYourWrites.begin()) {
+            try (ReadYourWrites nested = ReadYourWrites.begin()) {
+                routingDataSource.getConnection();
+            }
+            assertTrue(ReadYourWrites.hasWritten());
+        }
+
+        assertFalse(ReadYourWrites.hasWritten());
+    }
+
+    @Test
+    public void workHandedToAnotherThreadJoinsTheScope() throws Exception {
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try (ReadYourWrites request = ReadYourWrites.begin()) {
+            assertFalse(CompletableFuture.supplyAsync(ReadYourWrites.wrap(ReadYourWrites::hasWritten), worker).get());
+
+            routingDataSource.getConnection();
+            assertTrue(CompletableFuture.supplyAsync(ReadYourWrites.wrap(ReadYourWrites::hasWritten), worker).get());
+            assertFalse(CompletableFuture.supplyAsync(ReadYourWrites::hasWritten, worker).get());
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    public void writesOnAnotherThreadCountForTheScope() throws Exception {
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try (ReadYourWrites request = ReadYourWrites.begin()) {
+            CompletableFuture.supplyAsync(ReadYourWrites.wrap(() -> {
+                ReadYourWrites.recordWrite();
+                return null;
+            }), worker).get();
+
+            assertTrue(ReadYourWrites.hasWritten());
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    public void withoutReplicasEverythingGoesToPrimary() throws SQLException {
+        routingDataSource = new ReadWriteRoutingDataSource(primary, Collections.emptyList());
+        routingDataSource.afterPropertiesSet();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        routingDataSource.getConnection();
+
+        assertFalse(routingDataSource.hasReplicas());
+        verify(primary).getConnection();
+    }
+}
@@ -0,0 +1,90 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import se.teknikhogskolan.springcasemanagement.model.WorkItem;
+import se.teknikhogskolan.springcasemanagement.repository.WorkItemRepository;
+
+// Two embedded databases stand in for the primary and its replica. Replication is left out on purpose, so every
+// row tells which database it was read from.
+public final class TestReadWriteSplitting {
+    private static final String EMBEDDED = ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String PRIMARY_URL = "jdbc:h2:mem:primary" + EMBEDDED;
+    private static final String REPLICA_URL = "jdbc:h2:mem:replica" + EMBEDDED;
+    private static final Long REPLICA_ONLY_ID = 1000L;
+    private static AnnotationConfigApplicationContext context;
+    private static WorkItemRepository workItemRepository;
+    private static TransactionTemplate readWrite;
+
+    @BeforeClass
+    public static void masterSetup() throws SQLException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("casemanagement.database", "h2");
+        properties.put("casemanagement.datasource.jdbcUrl", PRIMARY_URL);
+        properties.put("casemanagement.replica.jdbcUrls", REPLICA_URL);
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("embedded", properties));
+        context.register(InfrastructureConfig.class);
+        context.refresh();
+        workItemRepository = context.getBean(WorkItemRepository.class);
+        readWrite = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        try (Connection primary = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+                Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+                Statement schema = primary.createStatement();
+                Statement copy = replica.createStatement();
+                ResultSet script = schema.executeQuery("SCRIPT NODATA")) {
+            while (script.next()) {
+                copy.execute(script.getString(1));
+            }
+            copy.execute("INSERT INTO WorkItem (id, description, status, version) VALUES (" + REPLICA_ONLY_ID
+                    + ", 'Only on the replica', 0, 0)");
+        }
+    }
+
+    // The databases outlive the context, leave them empty for the next run in this JVM
+    @AfterClass
+    public static void masterTearDown() throws SQLException {
+        context.close();
+        for (String url : new String[] { PRIMARY_URL, REPLICA_URL }) {
+            try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                    Statement drop = connection.createStatement()) {
+                drop.execute("DROP ALL OBJECTS");
+            }
+        }
+    }
+
+    @Test
+    public void readOnlyTransactionsReadFromReplica() {
+        assertNotNull(workItemRepository.findOne(REPLICA_ONLY_ID));
+        assertNull(readWrite.execute(status -> workItemRepository.findOne(REPLICA_ONLY_ID)));
+    }
+
+    @Test
+    public void readsAfterWriteInScopeSeeTheWrite() {
+        try (ReadYourWrites request = ReadYourWrites.begin()) {
+            WorkItem written = workItemRepository.save(new WorkItem("Written to the primary"));
+
+            assertNotNull(workItemRepository.findOne(written.getId()));
+            assertNull(workItemRepository.findOne(REPLICA_ONLY_ID));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package se.teknikhogskolan.springcasemanagement.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import se.teknikhogskolan.springcasemanagement.config.SqlBudgetInterceptor.Action;
+import se.teknikhogskolan.springcasemanagement.service.SqlBudget;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class TestSqlBudgetInterceptor {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Mock
+    private MethodInvocation invocation;
+
+    @Before
+    public void setUp() throws Exception {
+        when(invocation.getMethod()).thenReturn(Budgeted.class.getMethod("defaultBudget"));
+    }
+
+    @Test
+    public void callWithinBudgetReturnsItsResult() throws Throwable {
+        when(invocation.proceed()).thenAnswer(statements(3));
+
+        assertEquals("result", new SqlBudgetInterceptor(Action.FAIL, 3).invoke(invocation));
+    }
+
+    @Test
+    public void callOverBudgetFails() throws Throwable {
+        when(invocation.proceed()).thenAnswer(statements(4));
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Budgeted.defaultBudget used 4 statements, 0 rows, 0 connections, "
+                + "over its budget of 3 statements");
+        new SqlBudgetInterceptor(Action.FAIL, 3).invoke(invocation);
+    }
+
+    @Test
+    public void callOverBudgetIsOnlyLoggedWhenAskedTo() throws Throwable {
+        when(invocation.proceed()).thenAnswer(statements(4));
+
+        assertEquals("result", new SqlBudgetInterceptor(Action.LOG, 3).invoke(invocation));
+    }
+
+    @Test
+    public void annotatedBudgetOverridesTheDefault() throws Throwable {
+        when(invocation.getMethod()).thenReturn(Budgeted.class.getMethod("annotatedBudget"));
+        when(invocation.proceed()).thenAnswer(statements(2));
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("over its budget of 1 statements");
+        new SqlBudgetInterceptor(Action.FAIL, 3).invoke(invocation);
+    }
+
+    @Test
+    public void outerScopesSeeStatementsOfInnerScopes() throws Throwable {
+        when(invocation.proceed()).thenAnswer(statements(2));
+
+        try (SqlStatistics outer = SqlStatistics.begin()) {
+            SqlStatistics.recordStatement();
+            new SqlBudgetInterceptor(Action.FAIL, 3).invoke(invocation);
+
+            assertEquals(3, outer.getStatements());
+        }
+    }
+
+    @Test
+    public void failIsRejectedOutsideTheTestWorkload() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("casemanagement.workload", "oltp");
+        properties.put("casemanagement.database", "h2");
+        properties.put("casemanagement.datasource.jdbcUrl", "jdbc:h2:mem:budget;MODE=MySQL");
+        properties.put("casemanagement.sql.budget.action", "FAIL");
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("oltp", properties));
+            context.register(InfrastructureConfig.class);
+            context.refresh();
+            fail("Expected FAIL to be rejected");
+        } catch (BeanCreationException e) {
+            assertEquals("casemanagement.sql.budget.action=FAIL is only for the test workload, was oltp",
+                    e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    @Test
+    public void jdbcObjectsAreLeftUnwrappedOutsideTheTestWorkload() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("casemanagement.workload", "oltp");
+        properties.put("casemanagement.database", "h2");
+        properties.put("casemanagement.datasource.jdbcUrl", "jdbc:h2:mem:unwrapped;MODE=MySQL");
+        properties.put("casemanagement.datasource.registerMbeans", "false");
+        properties.put("casemanagement.metrics.jmx", "false");
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("oltp", properties));
+            context.register(InfrastructureConfig.class);
+            context.refresh();
+            assertFalse(context.getBean("dataSource") instanceof InstrumentedDataSource);
+        }
+    }
+
+    private static Answer<Object> statements(int count) {
+        return call -> {
+            for (int i = 0; i < count; i++) {
+                SqlStatistics.recordStatement();
+            }
+            return "result";
+        };
+    }
+
+    public static class Budgeted {
+
+        public void defaultBudget() {}
+
+        @SqlBudget(statements = 1)
+        public void annotatedBudget() {}
+    }
+}
@@ -5,6 +5,6 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ TestIssueRepository.class, TestTeamRepository.class, TestUserRepository.class,
+@SuiteClasses({ TestIssueRepository.class, TestQueryPlans.class, TestTeamRepository.class, TestUserRepository.class,
         TestWorkItemRepository.class })
 public class AllRepositoryTests {}
\ No newline at end of file
@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -68,6 +69,25 @@ public final class TestIssueRepository {
         deleteManyIssues(issuesInDb);
     }
 
+    @Test
+    public void canGetIssuesAfterId() {
+        List<Issue> issuesInDb = addIssuesToDb(10);
+        Long afterId = issuesInDb.get(3).getId();
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.scan(projectPackage);
+            context.refresh();
+            IssueRepository issueRepository = context.getBean(IssueRepository.class);
+
+            List<Issue> issues = issueRepository.findByIdGreaterThanOrderByIdAsc(afterId, new PageRequest(0, 4));
+            assertEquals(ids(issuesInDb.subList(4, 8)), ids(issues));
+        }
+        deleteManyIssues(issuesInDb);
+    }
+
+    private List<Long> ids(List<Issue> issues) {
+        return issues.stream().map(Issue::getId).collect(Collectors.toList());
+    }
+
     private Issue execute(Function<IssueRepository, Issue> operation) {
         try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
             context.scan(projectPackage);
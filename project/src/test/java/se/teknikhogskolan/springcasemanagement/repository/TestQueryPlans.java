@@ -0,0 +1,206 @@
+package se.teknikhogskolan.springcasemanagement.repository;
+
+import static org.junit.Assert.assertFalse;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import se.teknikhogskolan.springcasemanagement.config.InfrastructureConfig;
+import se.teknikhogskolan.springcasemanagement.model.Issue;
+import se.teknikhogskolan.springcasemanagement.model.Team;
+import se.teknikhogskolan.springcasemanagement.model.User;
+import se.teknikhogskolan.springcasemanagement.model.WorkItem;
+import se.teknikhogskolan.springcasemanagement.model.WorkItem.Status;
+
+// Substring searches (findBy...Contains), findAll and streamAll scan by design and are not checked here. Neither is
+// findByIssueIsNotNull: H2 cannot range-scan IS NOT NULL, MySQL serves it from idx_workitem_issue. Nor is
+// findWorkloadByTeamId: H2 keeps the written join order once there is an outer join and so starts from WorkItem,
+// MySQL starts from the team and reaches the work items through idx_user_team_active and idx_workitem_user_status.
+public final class TestQueryPlans {
+    private static final String FULL_SCAN = ".tableScan";
+    private static final List<String> statements = new ArrayList<>();
+    private static AnnotationConfigApplicationContext context;
+    private static TransactionTemplate transaction;
+    private static Team team;
+    private static User user;
+    private static WorkItem workItem;
+
+    @BeforeClass
+    public static void masterSetup() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("casemanagement.database", "h2");
+        properties.put("casemanagement.datasource.jdbcUrl", "jdbc:h2:mem:queryplans;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("casemanagement.replica.jdbcUrls", "");
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("embedded", properties));
+        context.register(InfrastructureConfig.class, RecordingDataSource.class);
+        context.refresh();
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        team = context.getBean(TeamRepository.class).save(new Team("Team with query plans"));
+        user = new User(90817263L, "Query_planner", "Plan", "Explainer");
+        user.setTeam(team);
+        user = context.getBean(UserRepository.class).save(user);
+        workItem = new WorkItem("Explain every repository query").setUser(user);
+        workItem.setIssue(new Issue("Full scans on every poll"));
+        workItem = context.getBean(WorkItemRepository.class).save(workItem);
+    }
+
+    // The database outlives the context, leave it empty for the next run in this JVM
+    @AfterClass
+    public static void masterTearDown() throws SQLException {
+        try (Connection connection = context.getBean(HikariDataSource.class).getConnection();
+                Statement drop = connection.createStatement()) {
+            drop.execute("DROP ALL OBJECTS");
+        }
+        context.close();
+    }
+
+    @Test
+    public void workItemQueriesUseIndexes() {
+        WorkItemRepository repository = context.getBean(WorkItemRepository.class);
+        Long userId = user.getId();
+        Long teamId = team.getId();
+        PageRequest page = new PageRequest(0, 10);
+
+        assertNoFullScan(() -> repository.findWithIssueAndUserById(workItem.getId()));
+        assertNoFullScan(() -> repository.findByStatus(Status.UNSTARTED));
+        assertNoFullScan(() -> repository.findByUserId(userId));
+        assertNoFullScan(() -> repository.countByUserId(userId));
+        assertNoFullScan(() -> repository.findByDescriptionIn(Arrays.asList(workItem.getDescription())));
+        assertNoFullScan(() -> repository.findByIdGreaterThanOrderByIdAsc(0L, page));
+        assertNoFullScan(() -> repository.findByStatusAndIdGreaterThanOrderByIdAsc(Status.UNSTARTED, 0L, page));
+        assertNoFullScan(() -> repository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, 0L, page));
+        assertNoFullScan(() -> repository.findByIssueIsNotNullAndIdGreaterThanOrderByIdAsc(0L, page));
+        assertNoFullScan(() -> repository.streamByStatus(Status.DONE).count());
+        assertNoFullScan(() -> repository.updateStatusByUserId(userId, Status.UNSTARTED));
+        assertNoFullScan(() -> repository.updateStatusByTeamId(teamId, Status.UNSTARTED));
+        assertNoFullScan(() -> repository.updateStatusByTeamIdAndStatus(teamId, Status.DONE, Status.UNSTARTED));
+    }
+
+    @Test
+    public void userQueriesUseIndexes() {
+        UserRepository repository = context.getBean(UserRepository.class);
+        Long userNumber = user.getUserNumber();
+
+        assertNoFullScan(() -> repository.findWithTeamById(user.getId()));
+        assertNoFullScan(() -> repository.findWithWorkItemsById(user.getId()));
+        assertNoFullScan(() -> repository.findWithTeamByUserNumber(userNumber));
+        assertNoFullScan(() -> repository.findWithWorkItemsByUserNumber(userNumber));
+        assertNoFullScan(() -> repository.findByUserNumber(userNumber));
+        assertNoFullScan(() -> repository.findByUserNumberIn(Arrays.asList(userNumber)));
+        assertNoFullScan(() -> repository.findByUsernameIn(Arrays.asList(user.getUsername())));
+        assertNoFullScan(() -> repository.findByTeamId(team.getId()));
+        assertNoFullScan(() -> repository.countByTeamId(team.getId()));
+        assertNoFullScan(() -> repository.inactivateByTeamId(-1L));
+    }
+
+    @Test
+    public void teamQueriesUseIndexes() {
+        TeamRepository repository = context.getBean(TeamRepository.class);
+
+        assertNoFullScan(() -> repository.findByName(team.getName()));
+        assertNoFullScan(() -> repository.findByNameIn(Arrays.asList(team.getName())));
+        assertNoFullScan(() -> repository.findWithUsersById(team.getId()));
+        assertNoFullScan(() -> repository.findLockedById(team.getId()));
+    }
+
+    @Test
+    public void issueQueriesUseIndexes() {
+        IssueRepository repository = context.getBean(IssueRepository.class);
+
+        assertNoFullScan(() -> repository.findByDescription("Full scans on every poll"));
+        assertNoFullScan(() -> repository.findByIdGreaterThanOrderByIdAsc(0L, new PageRequest(0, 10)));
+    }
+
+    private static void assertNoFullScan(Runnable query) {
+        context.getBean(EntityManagerFactory.class).getCache().evictAll();
+        statements.clear();
+        transaction.execute(status -> {
+            query.run();
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertFalse("No statements were recorded", statements.isEmpty());
+        for (String sql : statements) {
+            String plan = explain(sql);
+            assertFalse("Full table scan in:\n" + plan, plan.contains(FULL_SCAN));
+        }
+    }
+
+    private static String explain(String sql) {
+        try (Connection connection = context.getBean(HikariDataSource.class).getConnection();
+                PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++) {
+                statement.setNull(i, Types.NULL);
+            }
+            try (ResultSet result = statement.executeQuery()) {
+                result.next();
+                return result.getString(1);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not explain: " + sql, e);
+        }
+    }
+
+    static class RecordingDataSource {
+
+        @Bean
+        public DataSource dataSource(HikariDataSource primaryDataSource) {
+            return new DelegatingDataSource(primaryDataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return recording(super.getConnection());
+                }
+            };
+        }
+
+        private static Connection recording(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                        if (method.getName().equals("prepareStatement")) {
+                            String sql = ((String) args[0]).trim();
+                            String verb = sql.substring(0, sql.indexOf(' ')).toLowerCase(Locale.ROOT);
+                            if (verb.equals("select") || verb.equals("update") || verb.equals("delete")) {
+                                statements.add(sql);
+                            }
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
@@ -2,16 +2,26 @@ package se.teknikhogskolan.springcasemanagement.repository;
 
 import static org.junit.Assert.assertEquals;
 
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import com.zaxxer.hikari.HikariDataSource;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
 import org.springframework.data.repository.CrudRepository;
 
+import se.teknikhogskolan.springcasemanagement.model.PooledTableIdGenerator;
 import se.teknikhogskolan.springcasemanagement.model.Team;
 
 public final class TestTeamRepository {
@@ -56,6 +66,34 @@ public final class TestTeamRepository {
         deleteTeam(team);
     }
 
+    // pooled-lo reserves allocation_size ids per round trip to entity_ids and stores where the next block starts
+    @Test
+    public void idsAreReservedInBlocksOfTheConfiguredAllocationSize() throws SQLException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("casemanagement.database", "h2");
+        properties.put("casemanagement.datasource.jdbcUrl", "jdbc:h2:mem:idblocks;MODE=MySQL");
+        properties.put("casemanagement.replica.jdbcUrls", "");
+        properties.put(PooledTableIdGenerator.ALLOCATION_SIZE_SETTING, "3");
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("idblocks", properties));
+            context.scan(projectPackage);
+            context.refresh();
+            TeamRepository teamRepository = context.getBean(TeamRepository.class);
+            for (int i = 0; i < 4; i++) {
+                teamRepository.save(new Team("Block " + i));
+            }
+
+            try (Connection connection = context.getBean(HikariDataSource.class).getConnection();
+                    Statement select = connection.createStatement();
+                    ResultSet nextBlock = select.executeQuery(
+                            "select next_val from entity_ids where sequence_name = 'Team'")) {
+                nextBlock.next();
+                assertEquals(7, nextBlock.getLong(1));
+            }
+        }
+    }
+
     @Test
     public void canGetAllTeams() {
         executeVoid(teamRepository -> {
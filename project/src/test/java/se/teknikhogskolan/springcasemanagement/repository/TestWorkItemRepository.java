@@ -4,16 +4,27 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import org.hibernate.Hibernate;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import se.teknikhogskolan.springcasemanagement.model.Issue;
 import se.teknikhogskolan.springcasemanagement.model.Team;
 import se.teknikhogskolan.springcasemanagement.model.User;
 import se.teknikhogskolan.springcasemanagement.model.WorkItem;
@@ -63,18 +74,26 @@ public final class TestWorkItemRepository {
     }
 
     @Test
-    public void canGetWorkItemsByTeamId() {
+    public void canGetWorkloadByTeamIdWithAssigneesAndTeams() {
         Long teamIdInDb = team.getId();
 
-        Collection<WorkItem> result = executeMany(repo -> {
-            return repo.findByTeamId(teamIdInDb);
-        });
-
-        assertFalse(result.isEmpty());
-        result.forEach(workItem -> {
-            Long teamId = workItem.getUser().getTeam().getId();
-            assertEquals(teamIdInDb, teamId);
-        });
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.scan(PROJECT_PACKAGE);
+            context.refresh();
+            WorkItemRepository workItemRepository = context.getBean(WorkItemRepository.class);
+            TransactionTemplate transaction = new TransactionTemplate(
+                    context.getBean(PlatformTransactionManager.class));
+            transaction.setReadOnly(true);
+
+            List<WorkItem> result = transaction.execute(status -> workItemRepository.findWorkloadByTeamId(teamIdInDb));
+
+            assertEquals(1, result.size());
+            result.forEach(workItem -> {
+                assertTrue(Hibernate.isInitialized(workItem.getUser()));
+                assertTrue(Hibernate.isInitialized(workItem.getUser().getTeam()));
+                assertEquals(teamIdInDb, workItem.getUser().getTeam().getId());
+            });
+        }
     }
 
     @Test
@@ -119,6 +138,80 @@ public final class TestWorkItemRepository {
         result.forEach(item -> assertEquals(statusDone, item.getStatus()));
     }
 
+    @Test
+    public void canStreamWorkItemsByStatus() {
+        Status statusDone = workItemDone.getStatus();
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.scan(PROJECT_PACKAGE);
+            context.refresh();
+            WorkItemRepository workItemRepository = context.getBean(WorkItemRepository.class);
+            TransactionTemplate transaction = new TransactionTemplate(
+                    context.getBean(PlatformTransactionManager.class));
+            transaction.setReadOnly(true);
+
+            List<WorkItem> result = transaction.execute(status -> {
+                try (Stream<WorkItem> workItems = workItemRepository.streamByStatus(statusDone)) {
+                    return workItems.collect(Collectors.toList());
+                }
+            });
+
+            assertFalse(result.isEmpty());
+            result.forEach(item -> assertEquals(statusDone, item.getStatus()));
+        }
+    }
+
+    @Test
+    public void canInsertAllInSeveralJdbcBatches() {
+        List<WorkItem> workItems = IntStream.range(0, 120)
+                .mapToObj(i -> new WorkItem("Inserted in batches " + i))
+                .collect(Collectors.toList());
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.scan(PROJECT_PACKAGE);
+            context.refresh();
+            WorkItemRepository workItemRepository = context.getBean(WorkItemRepository.class);
+            TransactionTemplate transaction = new TransactionTemplate(
+                    context.getBean(PlatformTransactionManager.class));
+
+            List<WorkItem> result = transaction.execute(status -> workItemRepository.insertAll(workItems));
+
+            assertEquals(workItems.size(), result.size());
+            result.forEach(item -> assertNotNull(workItemRepository.findOne(item.getId())));
+            result.forEach(item -> workItemRepository.delete(item.getId()));
+        }
+    }
+
+    @Test
+    public void issueLoadsItsWorkItemWhenAsked() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.scan(PROJECT_PACKAGE);
+            context.refresh();
+            WorkItemRepository workItemRepository = context.getBean(WorkItemRepository.class);
+            IssueRepository issueRepository = context.getBean(IssueRepository.class);
+            TransactionTemplate transaction = new TransactionTemplate(
+                    context.getBean(PlatformTransactionManager.class));
+            WorkItem withIssue = workItemRepository.save(new WorkItem("Has an issue").setIssue(new Issue("Stuck")));
+
+            Long workItemId = transaction.execute(status -> {
+                return issueRepository.findOne(withIssue.getIssue().getId()).getWorkItem().getId();
+            });
+
+            assertEquals(withIssue.getId(), workItemId);
+            workItemRepository.delete(withIssue.getId());
+        }
+    }
+
+    @Test(expected = IllegalTransactionStateException.class)
+    public void insertingAllOutsideTransactionShouldFail() {
+        executeVoid(repo -> repo.insertAll(Collections.singletonList(new WorkItem("Never inserted"))));
+    }
+
+    @Test(expected = IllegalTransactionStateException.class)
+    public void streamingOutsideTransactionShouldFail() {
+        executeVoid(repo -> repo.streamAll().close());
+    }
+
     private void executeVoid(Consumer<WorkItemRepository> operation) {
         try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
             context.scan(PROJECT_PACKAGE);
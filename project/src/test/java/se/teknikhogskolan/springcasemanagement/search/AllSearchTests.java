@@ -0,0 +1,9 @@
+package se.teknikhogskolan.springcasemanagement.search;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({ TestInvertedIndex.class, TestTrigramIndex.class, TestColdSearch.class })
+public class AllSearchTests {}
@@ -0,0 +1,116 @@
+package se.teknikhogskolan.springcasemanagement.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import se.teknikhogskolan.springcasemanagement.model.Issue;
+import se.teknikhogskolan.springcasemanagement.model.User;
+import se.teknikhogskolan.springcasemanagement.model.WorkItem;
+import se.teknikhogskolan.springcasemanagement.repository.IssueRepository;
+import se.teknikhogskolan.springcasemanagement.repository.UserRepository;
+import se.teknikhogskolan.springcasemanagement.repository.WorkItemRepository;
+
+// A search answered from the database while an index warms up must match what the warm index answers
+public final class TestColdSearch {
+    private static final String PROJECT_PACKAGE = "se.teknikhogskolan.springcasemanagement";
+    private static AnnotationConfigApplicationContext context;
+    private static final String[] DESCRIPTIONS = { "Printer jams on tray two", "Printers offline on floor three",
+        "Blueprint review", "Paper jam in the printer, printer restarted", "100% of the disk is used" };
+    private static UserSearchIndex userSearchIndex;
+    private static DescriptionIndex descriptionIndex;
+    private static final List<User> users = new ArrayList<>();
+
+    @BeforeClass
+    public static void masterSetup() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("casemanagement.database", "h2");
+        properties.put("casemanagement.datasource.jdbcUrl", "jdbc:h2:mem:coldsearch;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("casemanagement.replica.jdbcUrls", "");
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("embedded", properties));
+        context.scan(PROJECT_PACKAGE);
+        context.refresh();
+        userSearchIndex = context.getBean(UserSearchIndex.class);
+        descriptionIndex = context.getBean(DescriptionIndex.class);
+
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        users.add(userRepository.save(new User(8101L, "Anna_Andersson", "Anna", "Andersson")));
+        users.add(userRepository.save(new User(8102L, "hanna_svensson", "Hanna", "Svensson")));
+        users.add(userRepository.save(new User(8103L, "annaXandersson", "Annika", "Andersson")));
+        users.add(userRepository.save(new User(8104L, "erik_johansson", "Erik", "Johansson")));
+        for (String description : DESCRIPTIONS) {
+            context.getBean(WorkItemRepository.class).save(new WorkItem(description));
+            context.getBean(IssueRepository.class).save(new Issue(description));
+        }
+    }
+
+    // The database outlives the context, leave it empty for the next run in this JVM
+    @AfterClass
+    public static void masterTearDown() throws SQLException {
+        try (Connection connection = context.getBean(HikariDataSource.class).getConnection();
+                Statement drop = connection.createStatement()) {
+            drop.execute("DROP ALL OBJECTS");
+        }
+        users.clear();
+        context.close();
+    }
+
+    @Test
+    public void usersFoundColdAreTheUsersFoundWarm() {
+        String[][] searches = { { "ANNA", "", "" }, { "ann", "sson", "a_a" }, { "", "", "%" }, { "", "", "" },
+                { "an", "and", "n" }, { null, "", "" } };
+        for (String[] criteria : searches) {
+            List<Long> cold = userSearchIndex.searchDatabase(criteria[0], criteria[1], criteria[2]);
+            awaitWarm(userSearchIndex::isWarm);
+            assertEquals(Arrays.toString(criteria), cold, userSearchIndex.search(criteria[0], criteria[1],
+                    criteria[2]));
+        }
+        assertEquals(Collections.singletonList(users.get(0).getId()),
+                userSearchIndex.searchDatabase("ANNA", "", "a_a"));
+    }
+
+    @Test
+    public void descriptionsFoundColdAreTheDescriptionsFoundWarm() {
+        for (Class<?> entityType : Arrays.asList(WorkItem.class, Issue.class)) {
+            for (String text : Arrays.asList("print", "PRINTER jam", "rint", "jam", "100%", "", null)) {
+                List<Long> cold = descriptionIndex.searchDatabase(entityType, text);
+                awaitWarm(() -> descriptionIndex.isWarm(entityType));
+                assertEquals(entityType.getSimpleName() + " " + text, cold, descriptionIndex.search(entityType, text));
+            }
+            assertEquals(3, descriptionIndex.searchDatabase(entityType, "print").size());
+        }
+    }
+
+    private static void awaitWarm(BooleanSupplier isWarm) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!isWarm.getAsBoolean()) {
+            assertTrue("Index did not warm up", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
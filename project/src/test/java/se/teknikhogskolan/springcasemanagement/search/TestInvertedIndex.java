@@ -0,0 +1,87 @@
+package se.teknikhogskolan.springcasemanagement.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public final class TestInvertedIndex {
+
+    private InvertedIndex index;
+
+    @Before
+    public void setUp() {
+        index = new InvertedIndex();
+        index.put(1L, "Replace the printer toner");
+        index.put(2L, "Printer is jammed, printer needs service");
+        index.put(3L, "Order new chairs");
+    }
+
+    @Test
+    public void matchesWholeTokensIgnoringCase() {
+        assertEquals(Collections.singletonList(3L), index.search("CHAIRS"));
+    }
+
+    @Test
+    public void ranksDocumentsWithMoreOccurrencesFirst() {
+        assertEquals(Arrays.asList(2L, 1L), index.search("printer"));
+    }
+
+    @Test
+    public void matchesTokenPrefixes() {
+        assertEquals(Arrays.asList(2L, 1L), index.search("print"));
+    }
+
+    @Test
+    public void rankExactMatchesAbovePrefixMatches() {
+        index.put(4L, "Print the report");
+        assertEquals(Arrays.asList(4L, 2L, 1L), index.search("print"));
+    }
+
+    @Test
+    public void requiresEveryQueryToken() {
+        assertEquals(Collections.singletonList(1L), index.search("printer toner"));
+        assertTrue(index.search("printer chairs").isEmpty());
+    }
+
+    @Test
+    public void putReplacesPreviousText() {
+        index.put(3L, "Order new printer");
+        assertTrue(index.search("chairs").isEmpty());
+        assertEquals(Arrays.asList(2L, 1L, 3L), index.search("printer"));
+    }
+
+    @Test
+    public void removedDocumentsAreNotFound() {
+        index.remove(1L);
+        assertEquals(Collections.singletonList(2L), index.search("printer"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void blankQueryFindsNothing() {
+        assertTrue(index.search(" , ").isEmpty());
+        assertTrue(index.search(null).isEmpty());
+    }
+
+    @Test
+    public void loadDoesNotOverwriteChangesMadeWhileLoading() {
+        InvertedIndex loading = new InvertedIndex();
+        loading.beginLoad();
+        loading.put(1L, "Fresh text");
+        loading.remove(2L);
+        loading.load(1L, "Stale text");
+        loading.load(2L, "Deleted text");
+        loading.load(3L, "Untouched text");
+        loading.endLoad();
+
+        assertEquals(Collections.singletonList(1L), loading.search("fresh"));
+        assertTrue(loading.search("stale").isEmpty());
+        assertTrue(loading.search("deleted").isEmpty());
+        assertEquals(Collections.singletonList(3L), loading.search("untouched"));
+    }
+}
@@ -0,0 +1,71 @@
+package se.teknikhogskolan.springcasemanagement.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public final class TestTrigramIndex {
+
+    private TrigramIndex index;
+
+    @Before
+    public void setUp() {
+        index = new TrigramIndex(3);
+        index.put(1L, "Anna", "Andersson", "anna_andersson");
+        index.put(2L, "Hanna", "Svensson", "hanna_svensson");
+        index.put(3L, "Erik", "Johansson", "erik_johansson");
+    }
+
+    @Test
+    public void matchesSubstringsInEveryField() {
+        assertEquals(Arrays.asList(1L, 2L), index.search("anna", "", ""));
+        assertEquals(Collections.singletonList(2L), index.search("anna", "sven", "hanna"));
+    }
+
+    @Test
+    public void matchingIsCaseInsensitive() {
+        assertEquals(Collections.singletonList(3L), index.search("ERIK", "JOHAN", ""));
+    }
+
+    @Test
+    public void trigramCandidatesAreVerifiedAgainstValues() {
+        index.put(4L, "Nils", "Sonsson", "nils_s");
+        assertTrue(index.search("", "ssonsv", "").isEmpty());
+        assertEquals(Collections.singletonList(4L), index.search("", "sonss", ""));
+    }
+
+    @Test
+    public void criteriaShorterThanTrigramAreStillMatched() {
+        assertEquals(Collections.singletonList(3L), index.search("er", "", ""));
+        assertEquals(Arrays.asList(1L, 2L, 3L), index.search("", "", ""));
+    }
+
+    @Test
+    public void nullCriterionMatchesNothing() {
+        assertTrue(index.search(null, "", "").isEmpty());
+    }
+
+    @Test
+    public void putReplacesPreviousValues() {
+        index.put(1L, "Anna", "Berg", "anna_berg");
+        assertTrue(index.search("", "andersson", "").isEmpty());
+        assertEquals(Collections.singletonList(1L), index.search("", "berg", ""));
+    }
+
+    @Test
+    public void removedDocumentsAreNotFound() {
+        index.remove(2L);
+        assertEquals(Collections.singletonList(1L), index.search("anna", "", ""));
+        assertEquals(2, index.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongNumberOfCriteriaIsRejected() {
+        index.search("anna", "");
+    }
+}
@@ -5,5 +5,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ TestIssueService.class, TestTeamService.class, TestUserService.class, TestWorkItemService.class })
+@SuiteClasses({ TestIssueService.class, TestTeamService.class, TestUserService.class, TestWorkItemService.class,
+        TestCacheStatisticsService.class, TestOptimisticLockRetryInterceptor.class, TestAsyncServiceFacade.class,
+        TestServiceMetrics.class, TestStatementCounts.class, TestUniqueValueUpdates.class })
 public class AllServiceTests {}
\ No newline at end of file
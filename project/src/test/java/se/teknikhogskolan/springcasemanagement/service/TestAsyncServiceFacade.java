@@ -0,0 +1,178 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import se.teknikhogskolan.springcasemanagement.model.Issue;
+import se.teknikhogskolan.springcasemanagement.model.Team;
+import se.teknikhogskolan.springcasemanagement.model.User;
+import se.teknikhogskolan.springcasemanagement.model.WorkItem;
+import se.teknikhogskolan.springcasemanagement.service.AsyncServiceFacade.Mode;
+import se.teknikhogskolan.springcasemanagement.tracing.InMemorySpanExporter;
+import se.teknikhogskolan.springcasemanagement.tracing.Span;
+import se.teknikhogskolan.springcasemanagement.tracing.Tracer;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class TestAsyncServiceFacade {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private TeamService teamService;
+
+    @Mock
+    private WorkItemService workItemService;
+
+    @Mock
+    private IssueService issueService;
+
+    private final InMemorySpanExporter spans = new InMemorySpanExporter(100);
+    private final Tracer tracer = new Tracer(spans, 1.0);
+    private AsyncServiceFacade facade;
+
+    @Before
+    public void setUp() {
+        facade = facade(Mode.BOUNDED, 2, 10);
+    }
+
+    @After
+    public void tearDown() {
+        facade.shutdown();
+    }
+
+    @Test
+    public void callsCompleteWithServiceResults() throws Exception {
+        User user = new User(1L, "Async_user", "Async", "User");
+        Team team = new Team("Async team");
+        WorkItem workItem = new WorkItem("Async work item");
+        Issue issue = new Issue("Async issue");
+        when(userService.getByUserNumber(1L)).thenReturn(user);
+        when(teamService.getById(2L)).thenReturn(team);
+        when(workItemService.getById(3L)).thenReturn(workItem);
+        when(issueService.getById(4L)).thenReturn(issue);
+
+        CompletableFuture<User> userResult = facade.users(service -> service.getByUserNumber(1L));
+        CompletableFuture<Team> teamResult = facade.teams(service -> service.getById(2L));
+        CompletableFuture<WorkItem> workItemResult = facade.workItems(service -> service.getById(3L));
+        CompletableFuture<Issue> issueResult = facade.issues(service -> service.getById(4L));
+
+        assertSame(user, userResult.get(5, TimeUnit.SECONDS));
+        assertSame(team, teamResult.get(5, TimeUnit.SECONDS));
+        assertSame(workItem, workItemResult.get(5, TimeUnit.SECONDS));
+        assertSame(issue, issueResult.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void callsRunOnWorkerThreads() throws Exception {
+        String worker = facade.teams(service -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+
+        assertNotEquals(Thread.currentThread().getName(), worker);
+        assertTrue(worker.startsWith("casemanagement-async-"));
+    }
+
+    @Test
+    public void serviceExceptionsFailTheFuture() throws Exception {
+        NoSearchResultException noResult = new NoSearchResultException("Team with id '2' do not exist");
+        when(teamService.getById(2L)).thenThrow(noResult);
+
+        try {
+            facade.teams(service -> service.getById(2L)).get(5, TimeUnit.SECONDS);
+            throw new AssertionError("Expected the future to fail");
+        } catch (ExecutionException e) {
+            assertSame(noResult, e.getCause());
+        }
+    }
+
+    @Test
+    public void callsBeyondThreadsAndQueueAreRejected() throws Exception {
+        facade.shutdown();
+        facade = facade(Mode.BOUNDED, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> running = facade.teams(service -> {
+            started.countDown();
+            return await(release);
+        });
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<Boolean> queued = facade.teams(service -> true);
+        CompletableFuture<Boolean> rejected = facade.teams(service -> true);
+
+        assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.join();
+            throw new AssertionError("Expected the future to fail");
+        } catch (CompletionException e) {
+            assertEquals("Too many pending service calls", e.getCause().getMessage());
+        }
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void virtualModeRunsCalls() throws Exception {
+        facade.shutdown();
+        facade = facade(Mode.VIRTUAL, 1, 1);
+        when(teamService.getById(2L)).thenReturn(new Team("Virtual team"));
+
+        assertEquals("Virtual team", facade.teams(service -> service.getById(2L).getName()).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void callsJoinTheCallersTrace() throws Exception {
+        CompletableFuture<String> call;
+        Span caller;
+        try (Span span = tracer.start("caller")) {
+            caller = span;
+            call = facade.users(service -> {
+                try (Span inner = tracer.start("UserService.getByUserNumber")) {
+                    return Thread.currentThread().getName();
+                }
+            });
+            call.get(5, TimeUnit.SECONDS);
+        }
+
+        List<Span> trace = spans.getTrace(caller.getTraceId());
+        assertEquals(3, trace.size());
+        assertEquals("UserService.getByUserNumber", trace.get(0).getName());
+        assertEquals(call.get(), trace.get(0).getThread());
+        assertEquals("async", trace.get(1).getName());
+        assertEquals(trace.get(1).getSpanId(), trace.get(0).getParentId());
+        assertEquals(caller.getSpanId(), trace.get(1).getParentId());
+        assertTrue(trace.get(1).getAttributes().containsKey("queueWaitMicros"));
+        assertSame(caller, trace.get(2));
+    }
+
+    private AsyncServiceFacade facade(Mode mode, int threads, int queueCapacity) {
+        return new AsyncServiceFacade(userService, teamService, workItemService, issueService, tracer, mode,
+                threads, queueCapacity);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.when;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.NaturalIdCacheStatistics;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import se.teknikhogskolan.springcasemanagement.model.Issue;
+import se.teknikhogskolan.springcasemanagement.model.User;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class TestCacheStatisticsService {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private Statistics statistics;
+
+    @Mock
+    private SecondLevelCacheStatistics userRegion;
+
+    @Mock
+    private NaturalIdCacheStatistics userNaturalIdRegion;
+
+    private CacheStatisticsService cacheStatisticsService;
+
+    @Before
+    public void setUp() {
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getStatistics()).thenReturn(statistics);
+        when(statistics.isStatisticsEnabled()).thenReturn(true);
+        cacheStatisticsService = new CacheStatisticsService(entityManagerFactory);
+    }
+
+    @Test
+    public void hitRatioIsHitsDividedByLookups() {
+        when(statistics.getSecondLevelCacheHitCount()).thenReturn(3L);
+        when(statistics.getSecondLevelCacheMissCount()).thenReturn(1L);
+        assertEquals(0.75, cacheStatisticsService.getHitRatio(), 0.0001);
+    }
+
+    @Test
+    public void hitRatioWithoutLookupsIsZero() {
+        assertEquals(0, cacheStatisticsService.getHitRatio(), 0.0001);
+    }
+
+    @Test
+    public void canGetHitsAndMissesPerEntityRegion() {
+        when(statistics.getSecondLevelCacheStatistics(User.class.getName())).thenReturn(userRegion);
+        when(userRegion.getHitCount()).thenReturn(7L);
+        when(userRegion.getMissCount()).thenReturn(2L);
+        assertEquals(7L, cacheStatisticsService.getHitCount(User.class));
+        assertEquals(2L, cacheStatisticsService.getMissCount(User.class));
+    }
+
+    @Test
+    public void canGetNaturalIdHitsPerEntity() {
+        when(statistics.getNaturalIdCacheStatistics(User.class.getName() + "##NaturalId"))
+                .thenReturn(userNaturalIdRegion);
+        when(userNaturalIdRegion.getHitCount()).thenReturn(5L);
+        assertEquals(5L, cacheStatisticsService.getNaturalIdHitCount(User.class));
+    }
+
+    @Test
+    public void unknownRegionHasNoHits() {
+        assertEquals(0L, cacheStatisticsService.getHitCount(Issue.class));
+        assertEquals(0L, cacheStatisticsService.getNaturalIdMissCount(Issue.class));
+    }
+
+    @Test
+    public void countsAreRefusedWhileStatisticsAreOff() {
+        when(statistics.isStatisticsEnabled()).thenReturn(false);
+        assertFalse(cacheStatisticsService.isStatisticsEnabled());
+
+        thrown.expect(ServiceException.class);
+        thrown.expectMessage("Cache statistics are off, set casemanagement.hibernate.statistics=true");
+        cacheStatisticsService.getHitRatio();
+    }
+}
@@ -4,9 +4,17 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -18,9 +26,12 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.RecoverableDataAccessException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
 import se.teknikhogskolan.springcasemanagement.model.Issue;
 import se.teknikhogskolan.springcasemanagement.repository.IssueRepository;
+import se.teknikhogskolan.springcasemanagement.search.DescriptionIndex;
+import se.teknikhogskolan.springcasemanagement.search.SearchResults;
 
 @RunWith(MockitoJUnitRunner.class)
 public final class TestIssueService {
@@ -31,6 +42,9 @@ public final class TestIssueService {
     @Mock
     private IssueRepository issueRepository;
 
+    @Mock
+    private DescriptionIndex descriptionIndex;
+
     @InjectMocks
     private IssueService issueService;
     private Long issueId;
@@ -60,6 +74,19 @@ public final class TestIssueService {
         issueService.getById(issueId);
     }
 
+    @Test
+    public void findIssueByIdReturnsEmptyWhenIssueDoesNotExist() {
+        when(issueRepository.findOne(issueId)).thenReturn(null);
+        assertFalse(issueService.findById(issueId).isPresent());
+    }
+
+    @Test
+    public void findMatchingReturnsEmptyListWhenNothingMatches() {
+        when(descriptionIndex.search(Issue.class, "missing")).thenReturn(Collections.emptyList());
+        when(issueRepository.findAll(Collections.<Long>emptyList())).thenReturn(Collections.emptyList());
+        assertTrue(issueService.findMatching("missing").isEmpty());
+    }
+
     @Test
     public void shouldThrowServiceExceptionIfErrorOccursWhenGettingIssueById() {
         thrown.expect(ServiceException.class);
@@ -100,9 +127,9 @@ public final class TestIssueService {
     public void canUpdateIssueDescription() {
         String newDesc = "New desc";
         when(issueRepository.findOne(issueId)).thenReturn(issueInDb);
-        when(issueRepository.save(issueInDb)).thenReturn(issueInDb);
+        when(issueRepository.saveAndFlush(issueInDb)).thenReturn(issueInDb);
         Issue issueFromDb = issueService.updateDescription(issueId, newDesc);
-        verify(issueRepository).save(new Issue(newDesc));
+        verify(issueRepository).saveAndFlush(new Issue(newDesc));
         assertEquals(issueFromDb.getDescription(), newDesc);
     }
 
@@ -137,9 +164,9 @@ public final class TestIssueService {
     public void canInactiveIssue() {
         issueInDb.setActive(true);
         when(issueRepository.findOne(issueId)).thenReturn(issueInDb);
-        when(issueRepository.save(issueInDb)).thenReturn(issueInDb);
+        when(issueRepository.saveAndFlush(issueInDb)).thenReturn(issueInDb);
         Issue issueFromDb = issueService.inactivate(issueId);
-        verify(issueRepository).save(issueInDb);
+        verify(issueRepository).saveAndFlush(issueInDb);
         assertFalse(issueFromDb.isActive());
     }
 
@@ -166,9 +193,9 @@ public final class TestIssueService {
     public void canActiveIssue() {
         issueInDb.setActive(false);
         when(issueRepository.findOne(issueId)).thenReturn(issueInDb);
-        when(issueRepository.save(issueInDb)).thenReturn(issueInDb);
+        when(issueRepository.saveAndFlush(issueInDb)).thenReturn(issueInDb);
         Issue issueFromDb = issueService.activate(issueId);
-        verify(issueRepository).save(issueInDb);
+        verify(issueRepository).saveAndFlush(issueInDb);
         assertTrue(issueFromDb.isActive());
     }
 
@@ -204,4 +231,93 @@ public final class TestIssueService {
         thrown.expectMessage("Could not get issues by page");
         issueService.getAllByPage(0, 6);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getAllAfterSeeksPastIdAndReportsNextPage() {
+        List<Issue> rows = Arrays.asList(new Issue("First"), new Issue("Second"), new Issue("Third"));
+        when(issueRepository.findByIdGreaterThanOrderByIdAsc(10L, new PageRequest(0, 3))).thenReturn(rows);
+        Slice<Issue> slice = issueService.getAllAfter(10L, 2);
+        assertEquals(rows.subList(0, 2), slice.getContent());
+        assertTrue(slice.hasNext());
+    }
+
+    @Test
+    public void getAllAfterWithoutIdStartsFromFirstIssue() {
+        List<Issue> rows = Collections.singletonList(new Issue("First"));
+        when(issueRepository.findByIdGreaterThanOrderByIdAsc(0L, new PageRequest(0, 3))).thenReturn(rows);
+        Slice<Issue> slice = issueService.getAllAfter(null, 2);
+        assertEquals(rows, slice.getContent());
+        assertFalse(slice.hasNext());
+    }
+
+    @Test
+    public void shouldThrowServiceExceptionIfLimitIsLessThanOne() {
+        thrown.expect(ServiceException.class);
+        thrown.expectMessage("Limit must be at least 1, was 0");
+        issueService.getAllAfter(null, 0);
+    }
+
+    @Test
+    public void shouldThrowServiceExceptionIfLimitIsTooLarge() {
+        thrown.expect(ServiceException.class);
+        thrown.expectMessage("Limit must be at most 1000, was " + Integer.MAX_VALUE);
+        issueService.getAllAfter(null, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void shouldThrowServiceExceptionIfErrorOccurredWhenGettingIssuesAfterId() {
+        doThrow(dataAccessException).when(issueRepository).findByIdGreaterThanOrderByIdAsc(10L, new PageRequest(0, 3));
+        thrown.expect(ServiceException.class);
+        thrown.expectMessage("Could not get issues after id: 10");
+        issueService.getAllAfter(10L, 2);
+    }
+
+    @Test
+    public void forEachPassesEveryStreamedIssueToAction() {
+        List<Issue> issues = Arrays.asList(new Issue("First"), new Issue("Second"));
+        when(issueRepository.streamAll()).thenReturn(issues.stream());
+        List<Issue> consumed = new ArrayList<>();
+        issueService.forEach(consumed::add);
+        assertEquals(issues, consumed);
+    }
+
+    @Test
+    public void shouldThrowServiceExceptionIfErrorOccurredWhenStreamingIssues() {
+        doThrow(dataAccessException).when(issueRepository).streamAll();
+        thrown.expect(ServiceException.class);
+        thrown.expectMessage("Could not stream issues");
+        issueService.forEach(issue -> {});
+    }
+
+    @Test
+    public void searchReturnsIssuesInRankOrder() {
+        Issue first = mock(Issue.class);
+        Issue second = mock(Issue.class);
+        when(first.getId()).thenReturn(1L);
+        when(second.getId()).thenReturn(2L);
+        List<Long> rankedIds = Arrays.asList(2L, 1L);
+        when(descriptionIndex.search(Issue.class, "printer")).thenReturn(rankedIds);
+        when(issueRepository.findAll(rankedIds)).thenReturn(Arrays.asList(first, second));
+        assertEquals(Arrays.asList(second, first), issueService.search("printer"));
+    }
+
+    @Test
+    public void searchLoadsOnlyTheBestRankedMatches() {
+        List<Long> rankedIds = LongStream.rangeClosed(1, SearchResults.MAX_RESULTS + 1).boxed()
+                .collect(Collectors.toList());
+        List<Long> best = rankedIds.subList(0, SearchResults.MAX_RESULTS);
+        when(descriptionIndex.search(Issue.class, "printer")).thenReturn(rankedIds);
+        when(issueRepository.findAll(best)).thenReturn(Collections.singletonList(issueInDb));
+        issueService.findMatching("printer");
+        verify(issueRepository).findAll(best);
+    }
+
+    @Test
+    public void shouldThrowNoSearchResultExceptionIfSearchFindsNothing() {
+        when(descriptionIndex.search(Issue.class, "printer")).thenReturn(Collections.emptyList());
+        when(issueRepository.findAll(Collections.<Long>emptyList())).thenReturn(Collections.emptyList());
+        thrown.expect(NoSearchResultException.class);
+        thrown.expectMessage("No issues matching 'printer'");
+        issueService.search("printer");
+    }
+}
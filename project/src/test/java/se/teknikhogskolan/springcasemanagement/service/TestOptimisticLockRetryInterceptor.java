@@ -0,0 +1,95 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.OptimisticLockException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+public final class TestOptimisticLockRetryInterceptor {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private ConflictingService target;
+    private Conflicting proxy;
+
+    @Before
+    public void setUp() {
+        target = new ConflictingService();
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvice(new OptimisticLockRetryInterceptor());
+        proxy = (Conflicting) proxyFactory.getProxy();
+    }
+
+    @Test
+    public void retriesUntilNoConflict() {
+        target.conflicts = 2;
+        assertEquals("done", proxy.update());
+        assertEquals(3, target.calls.get());
+    }
+
+    @Test
+    public void retriesWhenConflictIsWrappedInServiceException() {
+        target.conflicts = 1;
+        target.wrapConflict = true;
+        assertEquals("done", proxy.update());
+        assertEquals(2, target.calls.get());
+    }
+
+    @Test
+    public void shouldThrowServiceExceptionWhenAttemptsAreExhausted() {
+        thrown.expect(ServiceException.class);
+        thrown.expectMessage("update failed after 3 attempts due to concurrent updates");
+        target.conflicts = 3;
+        proxy.update();
+    }
+
+    @Test
+    public void doesNotRetryOtherExceptions() {
+        target.failure = new DataIntegrityViolationException("Duplicate");
+        try {
+            proxy.update();
+        } catch (DataIntegrityViolationException e) {
+            assertEquals(1, target.calls.get());
+            return;
+        }
+        throw new AssertionError("Expected DataIntegrityViolationException");
+    }
+
+    public interface Conflicting {
+
+        String update();
+    }
+
+    private static final class ConflictingService implements Conflicting {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private int conflicts;
+        private boolean wrapConflict;
+        private RuntimeException failure;
+
+        @Override
+        @RetryOnOptimisticLock
+        public String update() {
+            calls.incrementAndGet();
+            if (failure != null) {
+                throw failure;
+            }
+            if (conflicts-- > 0) {
+                RuntimeException conflict = new ObjectOptimisticLockingFailureException("Conflict",
+                        new OptimisticLockException());
+                throw wrapConflict ? new ServiceException("Wrapped", conflict) : conflict;
+            }
+            return "done";
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import se.teknikhogskolan.springcasemanagement.model.Team;
+import se.teknikhogskolan.springcasemanagement.model.Team.FetchPlan;
+import se.teknikhogskolan.springcasemanagement.service.ServiceMetrics.OperationSnapshot;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class TestServiceMetrics {
+
+    @Mock
+    private MethodInvocation getById;
+
+    @Mock
+    private MethodInvocation getByIdWithFetchPlan;
+
+    private ServiceMetrics metrics;
+    private ServiceMetricsInterceptor interceptor;
+    private final Team team = new Team("Metered team");
+
+    @Before
+    public void setUp() throws Exception {
+        metrics = new ServiceMetrics();
+        interceptor = new ServiceMetricsInterceptor(metrics);
+        when(getById.getMethod()).thenReturn(TeamService.class.getMethod("getById", Long.class));
+        when(getByIdWithFetchPlan.getMethod())
+                .thenReturn(TeamService.class.getMethod("getById", Long.class, FetchPlan.class));
+    }
+
+    @Test
+    public void recordsCallsAndLatency() throws Throwable {
+        when(getById.proceed()).thenReturn(team);
+
+        assertSame(team, interceptor.invoke(getById));
+        assertSame(team, interceptor.invoke(getById));
+
+        OperationSnapshot snapshot = metrics.getOperation("TeamService.getById");
+        assertEquals(2, snapshot.getCalls());
+        assertEquals(0, snapshot.getErrors());
+        assertTrue(snapshot.getP50Micros() > 0);
+        assertTrue(snapshot.getP999Micros() >= snapshot.getP99Micros());
+        assertTrue(snapshot.getMaxMicros() >= snapshot.getP999Micros());
+    }
+
+    @Test
+    public void recordsErrorsByExceptionType() throws Throwable {
+        NoSearchResultException noResult = new NoSearchResultException("Team with id '1' do not exist");
+        when(getById.proceed()).thenThrow(noResult).thenReturn(team);
+
+        try {
+            interceptor.invoke(getById);
+            throw new AssertionError("Expected the exception to be rethrown");
+        } catch (NoSearchResultException e) {
+            assertSame(noResult, e);
+        }
+        interceptor.invoke(getById);
+
+        OperationSnapshot snapshot = metrics.getOperation("TeamService.getById");
+        assertEquals(2, snapshot.getCalls());
+        assertEquals(Collections.singletonMap("NoSearchResultException", 1L), snapshot.getErrorsByType());
+    }
+
+    @Test
+    public void overloadsShareOneOperation() throws Throwable {
+        when(getById.proceed()).thenReturn(team);
+        when(getByIdWithFetchPlan.proceed()).thenReturn(team);
+
+        interceptor.invoke(getById);
+        interceptor.invoke(getByIdWithFetchPlan);
+
+        assertEquals(1, metrics.getOperations().size());
+        assertEquals(2, metrics.getOperation("TeamService.getById").getCalls());
+    }
+
+    @Test
+    public void reportIsPrometheusText() throws Throwable {
+        when(getById.proceed()).thenThrow(new ServiceException("Could not get team with id: 1"));
+        try {
+            interceptor.invoke(getById);
+        } catch (ServiceException e) {
+            // Counted as an error
+        }
+
+        String report = metrics.getReport();
+
+        assertTrue(report.contains("casemanagement_service_calls_total{operation=\"TeamService.getById\"} 1\n"));
+        assertTrue(report.contains("casemanagement_service_errors_total{operation=\"TeamService.getById\","
+                + "exception=\"ServiceException\"} 1\n"));
+        assertTrue(report.contains("casemanagement_service_latency_seconds{operation=\"TeamService.getById\","
+                + "quantile=\"0.999\"} "));
+        assertTrue(report.contains(
+                "casemanagement_service_latency_seconds_count{operation=\"TeamService.getById\"} 1\n"));
+    }
+
+    @Test
+    public void resetClearsCountsAndLatencies() throws Throwable {
+        when(getById.proceed()).thenReturn(team);
+        interceptor.invoke(getById);
+
+        metrics.reset();
+
+        OperationSnapshot snapshot = metrics.getOperation("TeamService.getById");
+        assertEquals(0, snapshot.getCalls());
+        assertEquals(0, snapshot.getMaxMicros(), 0);
+        assertNull(metrics.getOperation("TeamService.getByName"));
+    }
+}
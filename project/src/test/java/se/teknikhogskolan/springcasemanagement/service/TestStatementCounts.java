@@ -0,0 +1,275 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManagerFactory;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.hibernate.Hibernate;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import se.teknikhogskolan.springcasemanagement.config.QueryStatistics;
+import se.teknikhogskolan.springcasemanagement.config.SqlStatistics;
+import se.teknikhogskolan.springcasemanagement.model.Issue;
+import se.teknikhogskolan.springcasemanagement.model.Team;
+import se.teknikhogskolan.springcasemanagement.model.User;
+import se.teknikhogskolan.springcasemanagement.model.WorkItem;
+import se.teknikhogskolan.springcasemanagement.model.WorkItem.Status;
+import se.teknikhogskolan.springcasemanagement.repository.TeamRepository;
+import se.teknikhogskolan.springcasemanagement.repository.UserRepository;
+import se.teknikhogskolan.springcasemanagement.tracing.InMemorySpanExporter;
+import se.teknikhogskolan.springcasemanagement.tracing.Span;
+import se.teknikhogskolan.springcasemanagement.tracing.Tracer;
+
+// Pins the number of statements the service calls run against a real database, so that an N+1 select shows up as
+// a failing count here rather than as a slow call in production
+public final class TestStatementCounts {
+    private static final String PROJECT_PACKAGE = "se.teknikhogskolan.springcasemanagement";
+    private static final int USERS = 4;
+    private static final int WORK_ITEMS_PER_USER = 2;
+    private static AnnotationConfigApplicationContext context;
+    private static WorkItemService workItemService;
+    private static UserService userService;
+    private static TeamService teamService;
+    private static Team team;
+    private static Team smallTeam;
+    private static final List<User> users = new ArrayList<>();
+    private static final List<WorkItem> workItems = new ArrayList<>();
+
+    @BeforeClass
+    public static void masterSetup() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("casemanagement.database", "h2");
+        properties.put("casemanagement.datasource.jdbcUrl", "jdbc:h2:mem:statementcounts;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("casemanagement.replica.jdbcUrls", "");
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("embedded", properties));
+        context.scan(PROJECT_PACKAGE);
+        context.refresh();
+        workItemService = context.getBean(WorkItemService.class);
+        userService = context.getBean(UserService.class);
+        teamService = context.getBean(TeamService.class);
+
+        team = teamService.create("Team with counted statements");
+        for (int i = 0; i < USERS; i++) {
+            User user = userService.create(6100L + i, "Counted_user_" + i, "Counted", "User");
+            teamService.addUserToTeam(team.getId(), user.getId());
+            users.add(user);
+            for (int j = 0; j < WORK_ITEMS_PER_USER; j++) {
+                WorkItem workItem = workItemService.create("Counted work item " + i + "-" + j);
+                workItems.add(workItemService.setUser(user.getUserNumber(), workItem.getId()));
+            }
+        }
+        // The last user's work items have issues
+        for (WorkItem workItem : workItems.subList(workItems.size() - WORK_ITEMS_PER_USER, workItems.size())) {
+            workItemService.setStatus(workItem.getId(), Status.DONE);
+            Issue issue = workItemService.createIssue("Counted issue " + workItem.getId());
+            workItemService.addIssueToWorkItem(issue.getId(), workItem.getId());
+        }
+
+        smallTeam = teamService.create("Small team with counted statements");
+        User user = userService.create(6199L, "Counted_small_team_user", "Counted", "User");
+        teamService.addUserToTeam(smallTeam.getId(), user.getId());
+        workItemService.setUser(user.getUserNumber(), workItemService.create("Counted small team work item").getId());
+    }
+
+    // The database outlives the context, leave it empty for the next run in this JVM
+    @AfterClass
+    public static void masterTearDown() throws SQLException {
+        try (Connection connection = context.getBean(HikariDataSource.class).getConnection();
+                Statement drop = connection.createStatement()) {
+            drop.execute("DROP ALL OBJECTS");
+        }
+        users.clear();
+        workItems.clear();
+        context.close();
+    }
+
+    // Counts are for a cold second-level cache
+    @Before
+    public void setUp() {
+        context.getBean(EntityManagerFactory.class).getCache().evictAll();
+    }
+
+    @Test
+    public void getWorkItemsByTeamIdIsTwoSelectsWhateverTheTeamSize() {
+        try (SqlStatistics sql = SqlStatistics.begin()) {
+            workItemService.getByTeamId(team.getId());
+
+            assertEquals(2, sql.getStatements());
+            assertEquals(WORK_ITEMS_PER_USER + USERS * WORK_ITEMS_PER_USER, sql.getRows());
+            assertEquals(1, sql.getConnections());
+        }
+    }
+
+    @Test
+    public void getWorkItemsByTeamIdFetchesAssigneesTeamsAndIssuesWithTheirWorkItems() {
+        assertStatements(2, () -> workItemService.getByTeamId(smallTeam.getId()));
+
+        Collection<WorkItem> result;
+        try (SqlStatistics sql = SqlStatistics.begin()) {
+            result = workItemService.getByTeamId(team.getId());
+            assertEquals(sql.toString(), 2, sql.getStatements());
+        }
+
+        long withIssues = result.stream().filter(workItem -> workItem.getIssue() != null).count();
+        assertEquals(WORK_ITEMS_PER_USER, withIssues);
+        result.forEach(workItem -> {
+            assertTrue(Hibernate.isInitialized(workItem.getIssue()));
+            assertTrue(Hibernate.isInitialized(workItem.getUser()));
+            assertTrue(Hibernate.isInitialized(workItem.getUser().getTeam()));
+            if (workItem.getIssue() != null) {
+                assertSame(workItem, workItem.getIssue().getWorkItem());
+            }
+        });
+    }
+
+    @Test
+    public void getWorkItemByIdIsOneSelect() {
+        assertStatements(1, () -> workItemService.getById(workItems.get(0).getId()));
+    }
+
+    @Test
+    public void getWorkItemsByUserNumberResolvesTheUserAndSelectsOnce() {
+        assertStatements(2, () -> workItemService.getByUserNumber(users.get(0).getUserNumber()));
+    }
+
+    @Test
+    public void getUsersByTeamIdIsOneSelect() {
+        assertStatements(1, () -> userService.getAllByTeamId(team.getId()));
+    }
+
+    @Test
+    public void getTeamByIdIsOneSelect() {
+        assertStatements(1, () -> teamService.getById(team.getId()));
+    }
+
+    @Test
+    public void getUserByUserNumberIsOneSelect() {
+        assertStatements(1, () -> userService.getByUserNumber(users.get(0).getUserNumber()));
+    }
+
+    @Test
+    public void getWorkItemsByStatusIsOneSelect() {
+        assertStatements(1, () -> workItemService.getByStatus(Status.DONE));
+    }
+
+    @Test
+    public void setStatusIsOneSelectAndOneUpdate() {
+        assertStatements(2, () -> workItemService.setStatus(workItems.get(1).getId(), Status.STARTED));
+    }
+
+    @Test
+    public void setUserLocksCountsLoadsAndUpdates() {
+        WorkItem workItem = workItems.get(0);
+        assertStatements(4, () -> workItemService.setUser(users.get(0).getUserNumber(), workItem.getId()));
+    }
+
+    // The version increment on commit evicts the user, so only a user read since their last assignment is cached
+    @Test
+    public void setUserTakesACachedUserFromTheCacheAndCountsLoadsAndLocks() {
+        Long userNumber = users.get(0).getUserNumber();
+        userService.getByUserNumber(userNumber);
+        assertStatements(3, () -> workItemService.setUser(userNumber, workItems.get(1).getId()));
+    }
+
+    @Test
+    public void addUserToTeamLoadsLocksCountsUpdatesAndReloadsWithUsers() {
+        Team result;
+        try (SqlStatistics sql = SqlStatistics.begin()) {
+            result = teamService.addUserToTeam(team.getId(), users.get(0).getId());
+            assertEquals(sql.toString(), 5, sql.getStatements());
+        }
+
+        assertTrue(Hibernate.isInitialized(result.getUsers()));
+        assertEquals(USERS, result.getUsers().size());
+    }
+
+    @Test
+    public void queriesAreAttributedToTheRepositoryMethodThatRanThem() {
+        QueryStatistics queryStatistics = context.getBean(QueryStatistics.class);
+        queryStatistics.reset();
+
+        workItemService.getByTeamId(team.getId());
+
+        assertEquals(2, queryStatistics.getQuery("WorkItemRepository.findWorkloadByTeamId").getExecutions());
+        assertEquals(WORK_ITEMS_PER_USER + USERS * WORK_ITEMS_PER_USER,
+                queryStatistics.getQuery("WorkItemRepository.findWorkloadByTeamId").getRows());
+        assertNull(queryStatistics.getQuery("unknown"));
+    }
+
+    @Test
+    public void updatesFlushedOnCommitAreAttributedToTheServiceMethod() {
+        QueryStatistics queryStatistics = context.getBean(QueryStatistics.class);
+        queryStatistics.reset();
+
+        workItemService.setStatus(workItems.get(1).getId(), Status.DONE);
+
+        assertEquals(1, queryStatistics.getQuery("WorkItemRepository.findOne").getExecutions());
+        assertEquals(1, queryStatistics.getQuery("WorkItemService.setStatus").getExecutions());
+        assertEquals(1, queryStatistics.getQuery("WorkItemService.setStatus").getRows());
+    }
+
+    @Test
+    public void addUserToTeamIsTracedDownToTheRepositoriesConnectionAndCommit() {
+        Tracer tracer = context.getBean(Tracer.class);
+        InMemorySpanExporter spans = (InMemorySpanExporter) tracer.getExporter();
+        spans.clear();
+
+        teamService.addUserToTeam(team.getId(), users.get(1).getId());
+
+        List<Span> trace = spans.getSpans();
+        Span root = trace.get(trace.size() - 1);
+        assertEquals("TeamService.addUserToTeam", root.getName());
+        Set<String> children = new HashSet<>();
+        trace.stream().filter(span -> root.getSpanId().equals(span.getParentId()))
+                .forEach(span -> children.add(span.getName()));
+        assertTrue(children.toString(), children.containsAll(Arrays.asList("TeamRepository.findLockedById",
+                "UserRepository.save", "connection.acquire", "transaction.commit")));
+        assertTrue(trace.stream().allMatch(span -> root.getTraceId().equals(span.getTraceId())));
+    }
+
+    @Test
+    public void sharedRepositoryMethodsAreTracedUnderTheRepositoryThatRanThem() {
+        Tracer tracer = context.getBean(Tracer.class);
+        InMemorySpanExporter spans = (InMemorySpanExporter) tracer.getExporter();
+        spans.clear();
+
+        context.getBean(TeamRepository.class).findOne(team.getId());
+        context.getBean(UserRepository.class).findOne(users.get(0).getId());
+
+        List<String> names = new ArrayList<>();
+        spans.getSpans().stream().filter(span -> span.getName().endsWith(".findOne"))
+                .forEach(span -> names.add(span.getName()));
+        assertEquals(Arrays.asList("TeamRepository.findOne", "UserRepository.findOne"), names);
+    }
+
+    private static void assertStatements(long expected, Runnable serviceCall) {
+        try (SqlStatistics sql = SqlStatistics.begin()) {
+            serviceCall.run();
+            assertEquals(sql.toString(), expected, sql.getStatements());
+        }
+    }
+}
@@ -9,6 +9,9 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -66,6 +69,20 @@ public final class TestTeamService {
         verify(teamRepository).findOne(teamId);
     }
 
+    @Test
+    public void findTeamByNameReturnsEmptyWhenTeamDoesNotExist() {
+        when(teamRepository.findByName(team.getName())).thenReturn(null);
+        assertFalse(teamService.findByName(team.getName()).isPresent());
+    }
+
+    @Test
+    public void canGetTeamByIdWithUsers() {
+        when(teamRepository.findWithUsersById(teamId)).thenReturn(teamInDb);
+        Team teamFromDb = teamService.getById(teamId, Team.FetchPlan.WITH_USERS);
+        verify(teamRepository).findWithUsersById(teamId);
+        assertEquals(teamInDb, teamFromDb);
+    }
+
     @Test
     public void shouldThrowNoSearchResultExceptionWhenGettingTeamByIdThatDoNotExist() {
         thrown.expect(NoSearchResultException.class);
@@ -128,15 +145,28 @@ public final class TestTeamService {
         teamService.create(team.getName());
     }
 
+    @Test
+    public void canCreateAllTeamsAndReportExistingNames() {
+        List<String> names = Arrays.asList(team.getName(), teamInDb.getName(), team.getName());
+        when(teamRepository.findByNameIn(names)).thenReturn(Collections.singletonList(teamInDb));
+        when(teamRepository.insertAll(Collections.singletonList(team))).thenReturn(Collections.singletonList(team));
+
+        BatchResult<Team> result = teamService.createAll(names);
+
+        verify(teamRepository).insertAll(Collections.singletonList(team));
+        assertEquals(Collections.singletonList(team), result.getCreated());
+        assertEquals(Arrays.asList(1, 2), new ArrayList<>(result.getErrors().keySet()));
+    }
+
     @Test
     public void canUpdateTeamName() {
         when(teamRepository.findOne(teamId)).thenReturn(teamInDb);
-        when(teamRepository.save(teamInDb)).thenReturn(teamInDb);
+        when(teamRepository.saveAndFlush(teamInDb)).thenReturn(teamInDb);
         teamInDb.setName("Old name");
         String newName = "New name";
         Team team = teamService.updateName(teamId, newName);
 
-        verify(teamRepository).save(teamInDb);
+        verify(teamRepository).saveAndFlush(teamInDb);
         assertEquals(team.getName(), newName);
     }
 
@@ -175,9 +205,9 @@ public final class TestTeamService {
     public void canInactivateTeam() {
         teamInDb.setActive(true);
         when(teamRepository.findOne(teamId)).thenReturn(teamInDb);
-        when(teamRepository.save(teamInDb)).thenReturn(teamInDb);
+        when(teamRepository.saveAndFlush(teamInDb)).thenReturn(teamInDb);
         Team teamFromDb = teamService.inactive(teamId);
-        verify(teamRepository).save(teamInDb);
+        verify(teamRepository).saveAndFlush(teamInDb);
         assertFalse(teamFromDb.isActive());
 
     }
@@ -205,9 +235,9 @@ public final class TestTeamService {
     public void canActivateTeam() {
         teamInDb.setActive(false);
         when(teamRepository.findOne(teamId)).thenReturn(teamInDb);
-        when(teamRepository.save(teamInDb)).thenReturn(teamInDb);
+        when(teamRepository.saveAndFlush(teamInDb)).thenReturn(teamInDb);
         Team teamFromDb = teamService.activate(teamId);
-        verify(teamRepository).save(teamInDb);
+        verify(teamRepository).saveAndFlush(teamInDb);
         assertTrue(teamFromDb.isActive());
     }
 
@@ -256,17 +286,29 @@ public final class TestTeamService {
 
     @Test
     public void canAddUserToTeam() {
-        when(teamRepository.findOne(teamId)).thenReturn(team);
+        when(teamRepository.findLockedById(teamId)).thenReturn(team);
         when(userRepository.findOne(userId)).thenReturn(user);
-        teamService.addUserToTeam(teamId, userId);
+        when(teamRepository.findWithUsersById(teamId)).thenReturn(team);
+        assertEquals(team, teamService.addUserToTeam(teamId, userId));
         verify(userRepository).save(user);
+        verify(teamRepository).findWithUsersById(teamId);
+    }
+
+    @Test
+    public void shouldThrowServiceExceptionIfTeamIsFullWhenAddingUserToTeam() {
+        thrown.expect(ServiceException.class);
+        thrown.expectMessage("Team with id '" + teamId + "' already contains 10 users");
+        when(teamRepository.findLockedById(teamId)).thenReturn(team);
+        when(userRepository.findOne(userId)).thenReturn(user);
+        when(userRepository.countByTeamId(teamId)).thenReturn(10L);
+        teamService.addUserToTeam(teamId, userId);
     }
 
     @Test
     public void shouldThrowNoSearchResultExceptionIfUserIdIsNullWhenAddingUserToTeam() {
         thrown.expect(NoSearchResultException.class);
         thrown.expectMessage("Team with id '" + teamId + "' or User with id '" + userId + "' did not exist.");
-        when(teamRepository.findOne(teamId)).thenReturn(team);
+        when(teamRepository.findLockedById(teamId)).thenReturn(team);
         when(userRepository.findOne(userId)).thenReturn(null);
         teamService.addUserToTeam(teamId, userId);
     }
@@ -275,7 +317,7 @@ public final class TestTeamService {
     public void shouldThrowNoSearchResultExceptionIfTeamIdIsNullWhenAddingUserToTeam() {
         thrown.expect(NoSearchResultException.class);
         thrown.expectMessage("Team with id '" + teamId + "' or User with id '" + userId + "' did not exist.");
-        when(teamRepository.findOne(teamId)).thenReturn(null);
+        when(teamRepository.findLockedById(teamId)).thenReturn(null);
         when(userRepository.findOne(userId)).thenReturn(user);
         teamService.addUserToTeam(teamId, userId);
     }
@@ -284,7 +326,7 @@ public final class TestTeamService {
     public void shouldThrowServiceExceptionIfUserIsInactiveWhenAddingUserToTeam() {
         thrown.expect(ServiceException.class);
         thrown.expectMessage("User with id '" + userId + "' or Team with id '" + teamId + "' is inactive");
-        when(teamRepository.findOne(teamId)).thenReturn(team);
+        when(teamRepository.findLockedById(teamId)).thenReturn(team);
         when(userRepository.findOne(userId)).thenReturn(user);
         user.setActive(false);
         teamService.addUserToTeam(teamId, userId);
@@ -294,7 +336,7 @@ public final class TestTeamService {
     public void shouldThrowServiceExceptionIfTeamIsInactiveWhenAddingUserToTeam() {
         thrown.expect(ServiceException.class);
         thrown.expectMessage("User with id '" + userId + "' or Team with id '" + teamId + "' is inactive");
-        when(teamRepository.findOne(teamId)).thenReturn(team);
+        when(teamRepository.findLockedById(teamId)).thenReturn(team);
         when(userRepository.findOne(userId)).thenReturn(user);
         team.setActive(false);
         teamService.addUserToTeam(teamId, userId);
@@ -305,7 +347,7 @@ public final class TestTeamService {
         thrown.expect(ServiceException.class);
         thrown.expectMessage("Could not add user with id '" + userId
                 + "' to team with id '" + teamId);
-        when(teamRepository.findOne(teamId)).thenReturn(team);
+        when(teamRepository.findLockedById(teamId)).thenReturn(team);
         when(userRepository.findOne(userId)).thenReturn(user);
         doThrow(dataAccessException).when(userRepository).save(user);
         teamService.addUserToTeam(teamId, userId);
@@ -316,7 +358,7 @@ public final class TestTeamService {
         when(teamRepository.findOne(teamId)).thenReturn(team);
         when(userRepository.findOne(userId)).thenReturn(user);
         teamService.removeUserFromTeam(teamId, userId);
-        verify(userRepository).save(user);
+        verify(userRepository).saveAndFlush(user);
         assertNull(user.getTeam());
     }
 
@@ -365,7 +407,7 @@ public final class TestTeamService {
                 + "' from team with id '" + teamId);
         when(teamRepository.findOne(teamId)).thenReturn(team);
         when(userRepository.findOne(userId)).thenReturn(user);
-        doThrow(dataAccessException).when(userRepository).save(user);
+        doThrow(dataAccessException).when(userRepository).saveAndFlush(user);
         teamService.removeUserFromTeam(teamId, userId);
     }
 }
\ No newline at end of file
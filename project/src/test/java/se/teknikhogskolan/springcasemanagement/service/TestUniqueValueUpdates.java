@@ -0,0 +1,87 @@
+package se.teknikhogskolan.springcasemanagement.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import se.teknikhogskolan.springcasemanagement.model.Team;
+import se.teknikhogskolan.springcasemanagement.model.User;
+
+// Updates run in one transaction, so a unique constraint is only checked when the change is flushed. It has to be
+// flushed inside the service method for the violation to come out as a ServiceException.
+public final class TestUniqueValueUpdates {
+    private static final String PROJECT_PACKAGE = "se.teknikhogskolan.springcasemanagement";
+    private static AnnotationConfigApplicationContext context;
+    private static TeamService teamService;
+    private static UserService userService;
+    private static Team team;
+    private static Team otherTeam;
+    private static User user;
+    private static User otherUser;
+
+    @BeforeClass
+    public static void masterSetup() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("casemanagement.database", "h2");
+        properties.put("casemanagement.datasource.jdbcUrl", "jdbc:h2:mem:uniqueupdates;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("casemanagement.replica.jdbcUrls", "");
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("embedded", properties));
+        context.scan(PROJECT_PACKAGE);
+        context.refresh();
+        teamService = context.getBean(TeamService.class);
+        userService = context.getBean(UserService.class);
+
+        team = teamService.create("Team keeping its name");
+        otherTeam = teamService.create("Team with a taken name");
+        user = userService.create(7100L, "User_keeping_name", "Unique", "User");
+        otherUser = userService.create(7101L, "User_with_taken_name", "Unique", "User");
+    }
+
+    // The database outlives the context, leave it empty for the next run in this JVM
+    @AfterClass
+    public static void masterTearDown() throws SQLException {
+        try (Connection connection = context.getBean(HikariDataSource.class).getConnection();
+                Statement drop = connection.createStatement()) {
+            drop.execute("DROP ALL OBJECTS");
+        }
+        context.close();
+    }
+
+    @Test
+    public void renamingTeamToTakenNameThrowsServiceException() {
+        try {
+            teamService.updateName(team.getId(), otherTeam.getName());
+            fail("Expected ServiceException");
+        } catch (ServiceException e) {
+            assertEquals("Could not update name on team with id: " + team.getId(), e.getMessage());
+        }
+        assertEquals(team.getName(), teamService.getById(team.getId()).getName());
+    }
+
+    @Test
+    public void changingUsernameToTakenUsernameThrowsServiceException() {
+        try {
+            userService.updateUsername(user.getUserNumber(), otherUser.getUsername());
+            fail("Expected ServiceException");
+        } catch (ServiceException e) {
+            assertEquals("Failed to update username on user with user number: " + user.getUserNumber(),
+                    e.getMessage());
+        }
+        assertEquals(user.getUsername(), userService.getByUserNumber(user.getUserNumber()).getUsername());
+    }
+}
@@ -1,13 +1,23 @@
 package se.teknikhogskolan.springcasemanagement.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -22,9 +32,11 @@ import org.springframework.dao.DataAccessException;
 import org.springframework.dao.RecoverableDataAccessException;
 
 import se.teknikhogskolan.springcasemanagement.model.User;
-import se.teknikhogskolan.springcasemanagement.model.WorkItem;
 import se.teknikhogskolan.springcasemanagement.model.WorkItem.Status;
 import se.teknikhogskolan.springcasemanagement.repository.UserRepository;
+import se.teknikhogskolan.springcasemanagement.repository.WorkItemRepository;
+import se.teknikhogskolan.springcasemanagement.search.SearchResults;
+import se.teknikhogskolan.springcasemanagement.search.UserSearchIndex;
 
 @RunWith(MockitoJUnitRunner.class)
 public final class TestUserService {
@@ -35,6 +47,12 @@ public final class TestUserService {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private WorkItemRepository workItemRepository;
+
+    @Mock
+    private UserSearchIndex userSearchIndex;
+
     @Mock
     private User mockedUser;
 
@@ -75,6 +93,33 @@ public final class TestUserService {
         userService.create(user.getUserNumber(), user.getUsername(), user.getFirstName(), user.getLastName());
     }
 
+    @Test
+    public void createAllSavesValidUsersAndReportsTakenUserNumbers() {
+        User takenNumber = new User(3L, "Taken user number", "First", "Last");
+        User sameNumberAsFirst = new User(1L, "Another long name", "First", "Last");
+        when(userRepository.findByUserNumberIn(anyCollectionOf(Long.class)))
+                .thenReturn(Collections.singletonList(takenNumber));
+        when(userRepository.insertAll(Collections.singletonList(user))).thenReturn(Collections.singletonList(user));
+
+        BatchResult<User> result = userService.createAll(Arrays.asList(user, takenNumber, sameNumberAsFirst));
+
+        verify(userRepository).insertAll(Collections.singletonList(user));
+        assertEquals(Arrays.asList(1, 2), new ArrayList<>(result.getErrors().keySet()));
+    }
+
+    @Test
+    public void createAllReportsErrorsPerRow() {
+        User tooShort = new User(2L, "Short", "First", "Last");
+        List<User> batch = Arrays.asList(tooShort, user);
+        when(userRepository.insertAll(Collections.singletonList(user))).thenReturn(Collections.singletonList(user));
+
+        BatchResult<User> result = userService.createAll(batch);
+
+        assertEquals(Collections.singletonList(user), result.getCreated());
+        assertEquals("Username too short", result.getErrors().get(0));
+        assertTrue(result.hasErrors());
+    }
+
     @Test
     public void getUserByIdReturnsCorrectUser() {
         when(userRepository.findOne(1L)).thenReturn(user);
@@ -82,6 +127,46 @@ public final class TestUserService {
         assertEquals(user, userFromDatabase);
     }
 
+    @Test
+    public void findUserByIdReturnsEmptyWhenUserDoesNotExist() {
+        when(userRepository.findOne(1L)).thenReturn(null);
+        assertFalse(userService.findById(1L).isPresent());
+    }
+
+    @Test
+    public void findAllByTeamIdReturnsEmptyListWhenTeamHasNoUsers() {
+        when(userRepository.findByTeamId(1L)).thenReturn(Collections.emptyList());
+        assertTrue(userService.findAllByTeamId(1L).isEmpty());
+    }
+
+    @Test
+    public void notFoundExceptionIsStacklessAndFormatsMessageOnlyWhenRead() {
+        AtomicInteger formatted = new AtomicInteger();
+        NoSearchResultException exception = new NoSearchResultException(
+                () -> "Formatted " + formatted.incrementAndGet());
+
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals(0, formatted.get());
+        assertEquals("Formatted 1", exception.getMessage());
+        assertEquals("Formatted 1", exception.getMessage());
+    }
+
+    @Test
+    public void getUserByIdWithTeamUsesTeamFetchPlan() {
+        when(userRepository.findWithTeamById(1L)).thenReturn(user);
+        User userFromDatabase = userService.getById(1L, User.FetchPlan.WITH_TEAM);
+        verify(userRepository).findWithTeamById(1L);
+        assertEquals(user, userFromDatabase);
+    }
+
+    @Test
+    public void getUserByUserNumberWithWorkItemsUsesWorkItemsFetchPlan() {
+        when(userRepository.findWithWorkItemsByUserNumber(1L)).thenReturn(user);
+        User userFromDatabase = userService.getByUserNumber(1L, User.FetchPlan.WITH_WORK_ITEMS);
+        verify(userRepository).findWithWorkItemsByUserNumber(1L);
+        assertEquals(user, userFromDatabase);
+    }
+
     @Test
     public void getUserByIdThrowsServiceExceptionIfDataAccessException() {
         thrown.expect(ServiceException.class);
@@ -127,7 +212,7 @@ public final class TestUserService {
         String newFirstName = "New first name";
         userService.updateFirstName(1L, newFirstName);
         ArgumentCaptor<User> capturedUser = ArgumentCaptor.forClass(User.class);
-        verify(userRepository, times(1)).save(capturedUser.capture());
+        verify(userRepository, times(1)).saveAndFlush(capturedUser.capture());
         assertEquals(newFirstName, capturedUser.getValue().getFirstName());
     }
 
@@ -162,7 +247,7 @@ public final class TestUserService {
         String newLastName = "New last name";
         userService.updateLastName(1L, newLastName);
         ArgumentCaptor<User> capturedUser = ArgumentCaptor.forClass(User.class);
-        verify(userRepository, times(1)).save(capturedUser.capture());
+        verify(userRepository, times(1)).saveAndFlush(capturedUser.capture());
         assertEquals(newLastName, capturedUser.getValue().getLastName());
     }
 
@@ -197,7 +282,7 @@ public final class TestUserService {
         String newUsername = "New user name";
         userService.updateUsername(1L, newUsername);
         ArgumentCaptor<User> capturedUser = ArgumentCaptor.forClass(User.class);
-        verify(userRepository, times(1)).save(capturedUser.capture());
+        verify(userRepository, times(1)).saveAndFlush(capturedUser.capture());
         assertEquals(newUsername, capturedUser.getValue().getUsername());
     }
 
@@ -240,7 +325,7 @@ public final class TestUserService {
         when(userRepository.findByUserNumber(1L)).thenReturn(user);
         userService.activate(1L);
         ArgumentCaptor<User> capturedUser = ArgumentCaptor.forClass(User.class);
-        verify(userRepository, times(1)).save(capturedUser.capture());
+        verify(userRepository, times(1)).saveAndFlush(capturedUser.capture());
         assertEquals(true, capturedUser.getValue().isActive());
     }
 
@@ -262,24 +347,12 @@ public final class TestUserService {
 
     @Test
     public void inactivateUserSetsAllWorkItemsToUnstartedAndInactivatesUser() {
-        // Populate a list with some Started work items
-        List<WorkItem> workItems = new ArrayList<WorkItem>();
-        for (int i = 0; i < 4; i++) {
-            WorkItem workItem = new WorkItem("Some workItem");
-            workItem.setStatus(Status.STARTED);
-            workItems.add(workItem);
-        }
-
         when(userRepository.findByUserNumber(1L)).thenReturn(mockedUser);
-        when(mockedUser.getWorkItems()).thenReturn(workItems);
+        when(mockedUser.getId()).thenReturn(7L);
         userService.inactivate(1L);
-        ArgumentCaptor<User> capturedUser = ArgumentCaptor.forClass(User.class);
-        verify(userRepository, times(1)).save(capturedUser.capture());
-
-        for (WorkItem workItem : capturedUser.getValue().getWorkItems()) {
-            assertEquals(Status.UNSTARTED, workItem.getStatus());
-        }
-        assertEquals(false, capturedUser.getValue().isActive());
+        verify(workItemRepository, times(1)).updateStatusByUserId(7L, Status.UNSTARTED);
+        verify(mockedUser, times(1)).setActive(false);
+        verify(userRepository, times(1)).saveAndFlush(mockedUser);
     }
 
     @Test
@@ -287,7 +360,7 @@ public final class TestUserService {
         when(userRepository.findByUserNumber(1L)).thenReturn(user);
         userService.inactivate(1L);
         ArgumentCaptor<User> capturedUser = ArgumentCaptor.forClass(User.class);
-        verify(userRepository, times(1)).save(capturedUser.capture());
+        verify(userRepository, times(1)).saveAndFlush(capturedUser.capture());
         assertEquals(false, capturedUser.getValue().isActive());
     }
 
@@ -307,6 +380,21 @@ public final class TestUserService {
         userService.inactivate(1L);
     }
 
+    @Test
+    public void inactivateAllByTeamIdResetsWorkItemsAndInactivatesUsers() {
+        when(userRepository.inactivateByTeamId(1L)).thenReturn(3);
+        assertEquals(3, userService.inactivateAllByTeamId(1L));
+        verify(workItemRepository, times(1)).updateStatusByTeamId(1L, Status.UNSTARTED);
+    }
+
+    @Test
+    public void inactivateAllByTeamIdThrowsServiceExceptionIfExceptionIsThrown() {
+        doThrow(dataAccessException).when(userRepository).inactivateByTeamId(1L);
+        thrown.expect(ServiceException.class);
+        thrown.expectMessage("Failed to inactivate users with team id: 1");
+        userService.inactivateAllByTeamId(1L);
+    }
+
     @Test
     public void getAllByTeamIdCallsCorrectMethod() {
         when(userRepository.findByTeamId(1L)).thenReturn(users);
@@ -340,29 +428,23 @@ public final class TestUserService {
     }
 
     @Test
-    public void searchUsersCallsCorrectMethod() {
-        String name = "some name";
-        when(userRepository.findByFirstNameContainingAndLastNameContainingAndUsernameContaining(name, name, name))
-                .thenReturn(users);
-        List<User> usersFromDatabase = userService.search(name, name, name);
-        verify(userRepository, times(1)).findByFirstNameContainingAndLastNameContainingAndUsernameContaining(name, name,
-                name);
-        assertEquals(users, usersFromDatabase);
-    }
-
-    @Test
-    public void searchUsersThrowsNoSearchResultExceptionIfEmptyListReturned() {
-        when(userRepository.findByFirstNameContainingAndLastNameContainingAndUsernameContaining("first", "last",
-                "user")).thenReturn(new ArrayList<User>());
-        thrown.expect(NoSearchResultException.class);
-        thrown.expectMessage("No users fulfilling criteria: firstName = first, lastName = last, username = user");
-        userService.search("first", "last", "user");
+    public void searchUsersLoadsTheMatchesInIdOrder() {
+        User first = mock(User.class);
+        User second = mock(User.class);
+        when(first.getId()).thenReturn(1L);
+        when(second.getId()).thenReturn(2L);
+        List<Long> ids = Arrays.asList(1L, 2L);
+        when(userSearchIndex.search("first", "last", "user")).thenReturn(ids);
+        when(userRepository.findAll(ids)).thenReturn(Arrays.asList(second, first));
+        assertEquals(Arrays.asList(first, second), userService.search("first", "last", "user"));
+        verify(userRepository, never()).findByFirstNameContainingAndLastNameContainingAndUsernameContaining("first",
+                "last", "user");
     }
 
     @Test
-    public void searchUsersThrowsNoSearchResultExceptionIfNullReturned() {
-        when(userRepository.findByFirstNameContainingAndLastNameContainingAndUsernameContaining("first", "last",
-                "user")).thenReturn(null);
+    public void searchUsersThrowsNoSearchResultExceptionIfNothingMatches() {
+        when(userSearchIndex.search("first", "last", "user")).thenReturn(Collections.emptyList());
+        when(userRepository.findAll(Collections.<Long>emptyList())).thenReturn(Collections.emptyList());
         thrown.expect(NoSearchResultException.class);
         thrown.expectMessage("No users fulfilling criteria: firstName = first, lastName = last, username = user");
         userService.search("first", "last", "user");
@@ -370,10 +452,22 @@ public final class TestUserService {
 
     @Test
     public void searchUsersThrowsServiceExceptionIfExceptionIsThrown() {
-        doThrow(dataAccessException).when(userRepository)
-                .findByFirstNameContainingAndLastNameContainingAndUsernameContaining("first", "last", "user");
+        List<Long> ids = Arrays.asList(1L, 2L);
+        when(userSearchIndex.search("first", "last", "user")).thenReturn(ids);
+        doThrow(dataAccessException).when(userRepository).findAll(ids);
         thrown.expect(ServiceException.class);
         thrown.expectMessage("Failed to get users with criteria: firstName = first, lastName = last, username = user");
         userService.search("first", "last", "user");
     }
+
+    @Test
+    public void searchLoadsOnlyTheFirstMatches() {
+        List<Long> ids = LongStream.rangeClosed(1, SearchResults.MAX_RESULTS + 1).boxed()
+                .collect(Collectors.toList());
+        List<Long> first = ids.subList(0, SearchResults.MAX_RESULTS);
+        when(userSearchIndex.search("first", "last", "user")).thenReturn(ids);
+        when(userRepository.findAll(first)).thenReturn(Collections.singletonList(user));
+        userService.findMatching("first", "last", "user");
+        verify(userRepository).findAll(first);
+    }
 }
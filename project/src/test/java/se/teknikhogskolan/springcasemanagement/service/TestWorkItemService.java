@@ -1,14 +1,21 @@
 package se.teknikhogskolan.springcasemanagement.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -19,6 +26,8 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
 import se.teknikhogskolan.springcasemanagement.model.Issue;
 import se.teknikhogskolan.springcasemanagement.model.User;
@@ -27,6 +36,8 @@ import se.teknikhogskolan.springcasemanagement.model.WorkItem.Status;
 import se.teknikhogskolan.springcasemanagement.repository.IssueRepository;
 import se.teknikhogskolan.springcasemanagement.repository.UserRepository;
 import se.teknikhogskolan.springcasemanagement.repository.WorkItemRepository;
+import se.teknikhogskolan.springcasemanagement.search.DescriptionIndex;
+import se.teknikhogskolan.springcasemanagement.search.SearchResults;
 
 public final class TestWorkItemService {
 
@@ -51,6 +62,9 @@ public final class TestWorkItemService {
     @Mock
     private IssueRepository issueRepository;
 
+    @Mock
+    private DescriptionIndex descriptionIndex;
+
     @InjectMocks
     private WorkItemService workItemService;
 
@@ -75,6 +89,14 @@ public final class TestWorkItemService {
         assertEquals(workItem, result);
     }
 
+    @Test
+    public void canGetByIdWithIssueAndUser() {
+        when(workItemRepository.findWithIssueAndUserById(workItemId)).thenReturn(workItem);
+        WorkItem result = workItemService.getById(workItemId, WorkItem.FetchPlan.WITH_ISSUE_AND_USER);
+        verify(workItemRepository).findWithIssueAndUserById(workItemId);
+        assertEquals(workItem, result);
+    }
+
     @Test
     public void getByIdShouldCatchExceptionsAndThrowServiceException() {
         exception.expect(ServiceException.class);
@@ -93,7 +115,7 @@ public final class TestWorkItemService {
     public void settingInactiveUserToWorkItemShouldThrowException() {
         exception.expect(ServiceException.class);
         exception.expectMessage("Cannot set User to WorkItem. User is inactive or have 5 WorkItems");
-        when(userRepository.findByUserNumber(userNumber)).thenReturn(user);
+        when(userRepository.findLockedByUserNumber(userNumber)).thenReturn(user);
         when(user.isActive()).thenReturn(false);
         workItemService.setUser(userNumber, workItemId);
     }
@@ -102,31 +124,22 @@ public final class TestWorkItemService {
     public void settingUserWithFiveWorkItemToSixthWorkItemShouldThrowException() {
         exception.expect(ServiceException.class);
         exception.expectMessage("Cannot set User to WorkItem. User is inactive or have 5 WorkItems");
-        when(userRepository.findByUserNumber(userNumber)).thenReturn(user);
+        when(userRepository.findLockedByUserNumber(userNumber)).thenReturn(user);
         when(user.isActive()).thenReturn(true);
         when(user.getId()).thenReturn(userId);
         when(workItemRepository.findOne(workItemId)).thenReturn(workItem);
-        workItems = createListWithWorkItems(5);
-        when(workItemRepository.findByUserId(userId)).thenReturn(workItems);
+        when(workItemRepository.countByUserId(userId)).thenReturn(5L);
         workItemService.setUser(userNumber, workItemId);
     }
 
-    private Collection<WorkItem> createListWithWorkItems(int amountOfItems) {
-        Collection<WorkItem> items = new ArrayList<>();
-        for (int i = 0; i < amountOfItems; i++)
-            items.add(new WorkItem("WorkItem #" + i));
-        return items;
-    }
-
     @Test
     public void canSetUserToWorkItem() {
-        when(userRepository.findByUserNumber(userNumber)).thenReturn(user);
+        when(userRepository.findLockedByUserNumber(userNumber)).thenReturn(user);
         when(user.isActive()).thenReturn(true);
         when(user.getUserNumber()).thenReturn(userNumber);
         when(workItem.getId()).thenReturn(workItemId);
-        workItems = createListWithWorkItems(4);
         when(user.getId()).thenReturn(userId);
-        when(workItemRepository.findByUserId(userId)).thenReturn(workItems);
+        when(workItemRepository.countByUserId(userId)).thenReturn(4L);
         when(workItemRepository.findOne(workItemId)).thenReturn(workItem);
         workItemService.setUser(userNumber, workItemId);
         verify(workItem).setUser(user);
@@ -136,14 +149,14 @@ public final class TestWorkItemService {
     @Test
     public void canSetUserToWorkItemShouldCatchExceptionsAndThrowServiceExeption() {
         exception.expect(ServiceException.class);
-        when(userRepository.findByUserNumber(userNumber)).thenThrow(dataAccessException);
+        when(userRepository.findLockedByUserNumber(userNumber)).thenThrow(dataAccessException);
         workItemService.setUser(userNumber, workItemId);
     }
 
     @Test
     public void setNotFoundUserToWorkItemShouldThrowNoSearchResultExeption() {
         exception.expect(NoSearchResultException.class);
-        when(userRepository.findByUserNumber(userNumber)).thenReturn(null);
+        when(userRepository.findLockedByUserNumber(userNumber)).thenReturn(null);
         workItemService.setUser(userNumber, workItemId);
     }
 
@@ -183,7 +196,7 @@ public final class TestWorkItemService {
         when(workItem.getIssue()).thenReturn(issue);
         when(workItem.setIssue(null)).thenReturn(workItem);
         when(workItemRepository.save(workItem)).thenReturn(workItem);
-        when(workItemRepository.findOne(workItemId)).thenReturn(workItem);
+        when(workItemRepository.findWithIssueAndUserById(workItemId)).thenReturn(workItem);
 
         WorkItem result = workItemService.removeIssueFromWorkItem(workItemId);
 
@@ -191,6 +204,7 @@ public final class TestWorkItemService {
         verify(workItem).setIssue(null);
         verify(workItemRepository).save(workItem);
         verify(issueRepository).delete(issue.getId());
+        verify(issueRepository).flush();
     }
 
     @Test
@@ -198,7 +212,7 @@ public final class TestWorkItemService {
         exception.expect(ServiceException.class);
         exception.expectMessage(
                 String.format("Cannot remove Issue from WorkItem %d, no Issue found in WorkItem", workItemId));
-        when(workItemRepository.findOne(workItemId)).thenReturn(workItem);
+        when(workItemRepository.findWithIssueAndUserById(workItemId)).thenReturn(workItem);
         when(workItem.getIssue()).thenReturn(null);
         workItemService.removeIssueFromWorkItem(workItemId);
     }
@@ -207,7 +221,7 @@ public final class TestWorkItemService {
     public void removingIssueFromWorkItemNotFoundInDatabaseShouldThrowException() {
         exception.expect(ServiceException.class);
         exception.expectMessage(String.format("Cannot find WorkItem with id '%d'", workItemId));
-        when(workItemRepository.findOne(workItemId)).thenReturn(null);
+        when(workItemRepository.findWithIssueAndUserById(workItemId)).thenReturn(null);
         workItemService.removeIssueFromWorkItem(workItemId);
     }
 
@@ -215,7 +229,7 @@ public final class TestWorkItemService {
     public void removingIssueFromWorkItemShouldCatchExceptionsAndThrowServiceException() {
         exception.expect(ServiceException.class);
         exception.expectMessage(String.format("Cannot remove Issue from WorkItem. WorkItem id '%d'", workItemId));
-        doThrow(dataAccessException).when(workItemRepository).findOne(workItemId);
+        doThrow(dataAccessException).when(workItemRepository).findWithIssueAndUserById(workItemId);
         workItemService.removeIssueFromWorkItem(workItemId);
     }
 
@@ -278,7 +292,7 @@ public final class TestWorkItemService {
 
         verify(workItem).setStatus(Status.UNSTARTED);
         verify(workItem).setIssue(issue);
-        verify(workItemRepository).save(workItem);
+        verify(workItemRepository).saveAndFlush(workItem);
     }
 
     @Test
@@ -325,16 +339,16 @@ public final class TestWorkItemService {
     @Test
     public void canFindByTeamId() {
         workItems.add(workItem);
-        when(workItemRepository.findByTeamId(teamId)).thenReturn((List<WorkItem>) workItems);
+        when(workItemRepository.findWorkloadByTeamId(teamId)).thenReturn((List<WorkItem>) workItems);
         workItemService.getByTeamId(teamId);
-        verify(workItemRepository).findByTeamId(teamId);
+        verify(workItemRepository).findWorkloadByTeamId(teamId);
     }
 
     @Test
     public void canFindByTeamIdShouldCatchExceptionsAndThrowServiceException() {
         exception.expect(ServiceException.class);
         exception.expectMessage(String.format("Cannot not get WorkItems by Team id '%s'", teamId));
-        when(workItemRepository.findByTeamId(teamId)).thenThrow(dataAccessException);
+        when(workItemRepository.findWorkloadByTeamId(teamId)).thenThrow(dataAccessException);
         workItemService.getByTeamId(teamId);
     }
 
@@ -343,7 +357,7 @@ public final class TestWorkItemService {
         exception.expect(ServiceException.class);
         exception.expectMessage(String.format("Cannot not get WorkItems by Team id '%s'", teamId));
         workItemService.getByTeamId(teamId);
-        verify(workItemRepository).findByTeamId(teamId);
+        verify(workItemRepository).findWorkloadByTeamId(teamId);
     }
 
     @Test
@@ -351,9 +365,38 @@ public final class TestWorkItemService {
         String searchText = "important";
         workItems = new ArrayList<>();
         workItems.add(workItem);
-        when(workItemRepository.findByDescriptionContains(searchText)).thenReturn(workItems);
+        List<Long> rankedIds = Collections.singletonList(workItemId);
+        when(workItem.getId()).thenReturn(workItemId);
+        when(descriptionIndex.search(WorkItem.class, searchText)).thenReturn(rankedIds);
+        when(workItemRepository.findAll(rankedIds)).thenReturn(workItems);
         workItemService.getByDescriptionContains(searchText);
-        verify(workItemRepository).findByDescriptionContains(searchText);
+        verify(workItemRepository).findAll(rankedIds);
+    }
+
+    @Test
+    public void findByDescriptionContainsReturnsWorkItemsInRankOrder() {
+        String searchText = "important";
+        WorkItem first = mock(WorkItem.class);
+        WorkItem second = mock(WorkItem.class);
+        when(first.getId()).thenReturn(1L);
+        when(second.getId()).thenReturn(2L);
+        List<Long> rankedIds = Arrays.asList(2L, 1L);
+        when(descriptionIndex.search(WorkItem.class, searchText)).thenReturn(rankedIds);
+        when(workItemRepository.findAll(rankedIds)).thenReturn(Arrays.asList(first, second));
+        Collection<WorkItem> result = workItemService.getByDescriptionContains(searchText);
+        assertEquals(Arrays.asList(second, first), new ArrayList<>(result));
+    }
+
+    @Test
+    public void findByDescriptionContainsLoadsOnlyTheBestRankedMatches() {
+        String searchText = "important";
+        List<Long> rankedIds = LongStream.rangeClosed(1, SearchResults.MAX_RESULTS + 1).boxed()
+                .collect(Collectors.toList());
+        List<Long> best = rankedIds.subList(0, SearchResults.MAX_RESULTS);
+        when(descriptionIndex.search(WorkItem.class, searchText)).thenReturn(rankedIds);
+        when(workItemRepository.findAll(best)).thenReturn(Collections.singletonList(workItem));
+        workItemService.findByDescriptionContains(searchText);
+        verify(workItemRepository).findAll(best);
     }
 
     @Test
@@ -361,19 +404,18 @@ public final class TestWorkItemService {
         String searchText = "important";
         exception.expect(ServiceException.class);
         exception.expectMessage("Cannot get WorkItems by description contains '" + searchText + "'");
-        when(workItemRepository.findByDescriptionContains(searchText)).thenReturn(workItems);
+        when(descriptionIndex.search(WorkItem.class, searchText)).thenReturn(Collections.emptyList());
+        when(workItemRepository.findAll(Collections.<Long>emptyList())).thenReturn(workItems);
         workItemService.getByDescriptionContains(searchText);
-        verify(workItemRepository).findByDescriptionContains(searchText);
     }
 
     @Test
-    public void canFindByDescriptionContainsReturnsNullShouldThrowException() {
+    public void canFindByDescriptionContainsWhenSearchFailsShouldThrowException() {
         String searchText = "important";
         exception.expect(ServiceException.class);
         exception.expectMessage("Cannot get WorkItems by description contains '" + searchText + "'");
-        when(workItemRepository.findByDescriptionContains(searchText)).thenReturn(null);
+        when(descriptionIndex.search(WorkItem.class, searchText)).thenThrow(dataAccessException);
         workItemService.getByDescriptionContains(searchText);
-        verify(workItemRepository).findByDescriptionContains(searchText);
     }
 
     @Test
@@ -385,6 +427,18 @@ public final class TestWorkItemService {
         verify(workItemRepository).findByStatus(wantedStatus);
     }
 
+    @Test
+    public void findByStatusReturnsEmptyCollectionWhenNothingMatches() {
+        when(workItemRepository.findByStatus(WorkItem.Status.DONE)).thenReturn(Collections.emptyList());
+        assertTrue(workItemService.findByStatus(WorkItem.Status.DONE).isEmpty());
+    }
+
+    @Test
+    public void findByUserNumberReturnsEmptyCollectionWhenUserDoesNotExist() {
+        when(userRepository.findByUserNumber(userNumber)).thenReturn(null);
+        assertTrue(workItemService.findByUserNumber(userNumber).isEmpty());
+    }
+
     @Test
     public void canFindByStatusShouldThrowExceptionIfNoWorkItemFound() {
         Status wantedStatus = Status.STARTED;
@@ -443,6 +497,83 @@ public final class TestWorkItemService {
         workItemService.setStatus(workItem.getId(), newStatus);
     }
 
+    @Test
+    public void canChangeStatusOfAllWorkItemsInTeam() {
+        Long teamId = 3L;
+        when(workItemRepository.updateStatusByTeamIdAndStatus(teamId, Status.STARTED, Status.DONE)).thenReturn(4);
+        assertEquals(4, workItemService.setStatusByTeamId(teamId, Status.STARTED, Status.DONE));
+    }
+
+    @Test
+    public void changeStatusByTeamIdShouldCatchExceptionsAndThrowServiceException() {
+        Long teamId = 3L;
+        exception.expect(ServiceException.class);
+        exception.expectMessage(String.format("Cannot set Status '%s' on WorkItems with Status '%s' in Team '%s'",
+                Status.DONE, Status.STARTED, teamId));
+        when(workItemRepository.updateStatusByTeamIdAndStatus(teamId, Status.STARTED, Status.DONE))
+                .thenThrow(dataAccessException);
+        workItemService.setStatusByTeamId(teamId, Status.STARTED, Status.DONE);
+    }
+
+    @Test
+    public void canGetWorkItemsByStatusAfterId() {
+        List<WorkItem> rows = Arrays.asList(workItem, workItem);
+        when(workItemRepository.findByStatusAndIdGreaterThanOrderByIdAsc(Status.STARTED, 5L, new PageRequest(0, 3)))
+                .thenReturn(rows);
+        Slice<WorkItem> slice = workItemService.getByStatusAfter(Status.STARTED, 5L, 2);
+        assertEquals(2, slice.getNumberOfElements());
+        assertFalse(slice.hasNext());
+    }
+
+    @Test
+    public void getAllAfterReportsNextPageWhenMoreRowsExist() {
+        List<WorkItem> rows = Arrays.asList(workItem, workItem, workItem);
+        when(workItemRepository.findByIdGreaterThanOrderByIdAsc(0L, new PageRequest(0, 3))).thenReturn(rows);
+        Slice<WorkItem> slice = workItemService.getAllAfter(null, 2);
+        assertEquals(2, slice.getNumberOfElements());
+        assertTrue(slice.hasNext());
+    }
+
+    @Test
+    public void getAllAfterShouldThrowServiceExceptionIfLimitIsTooLarge() {
+        exception.expect(ServiceException.class);
+        exception.expectMessage("Limit must be at most 1000, was 1001");
+        workItemService.getAllAfter(null, 1001);
+    }
+
+    @Test
+    public void getByUserNumberAfterShouldThrowNoSearchResultExceptionIfUserIsMissing() {
+        exception.expect(NoSearchResultException.class);
+        exception.expectMessage("Cannot find User with usernNumber '" + userNumber + "'");
+        when(userRepository.findByUserNumber(userNumber)).thenReturn(null);
+        workItemService.getByUserNumberAfter(userNumber, null, 10);
+    }
+
+    @Test
+    public void getAllWithIssueAfterShouldCatchExceptionsAndThrowServiceException() {
+        exception.expect(ServiceException.class);
+        exception.expectMessage("Cannot get WorkItems with Issue after id '5'");
+        when(workItemRepository.findByIssueIsNotNullAndIdGreaterThanOrderByIdAsc(5L, new PageRequest(0, 3)))
+                .thenThrow(dataAccessException);
+        workItemService.getAllWithIssueAfter(5L, 2);
+    }
+
+    @Test
+    public void forEachByStatusPassesEveryStreamedWorkItemToAction() {
+        when(workItemRepository.streamByStatus(Status.DONE)).thenReturn(Arrays.asList(workItem, workItem).stream());
+        List<WorkItem> consumed = new ArrayList<>();
+        workItemService.forEachByStatus(Status.DONE, consumed::add);
+        assertEquals(2, consumed.size());
+    }
+
+    @Test
+    public void forEachShouldCatchExceptionsAndThrowServiceException() {
+        exception.expect(ServiceException.class);
+        exception.expectMessage("Cannot stream all WorkItems");
+        when(workItemRepository.streamAll()).thenThrow(dataAccessException);
+        workItemService.forEach(workItem -> {});
+    }
+
     @Test
     public void canCreatePersistedWorkItem() {
         String workItemDescription = "Do something!";
@@ -452,6 +583,32 @@ public final class TestWorkItemService {
         assertEquals(workItem, result);
     }
 
+    @Test
+    public void createAllSavesValidRowsAndReportsDuplicateDescriptions() {
+        List<String> descriptions = Arrays.asList("First", "Existing", "First", "Second");
+        when(workItemRepository.findByDescriptionIn(descriptions))
+                .thenReturn(Collections.singletonList(new WorkItem("Existing")));
+        List<WorkItem> valid = Arrays.asList(new WorkItem("First"), new WorkItem("Second"));
+        when(workItemRepository.insertAll(valid)).thenReturn(valid);
+
+        BatchResult<WorkItem> result = workItemService.createAll(descriptions);
+
+        verify(workItemRepository).insertAll(valid);
+        assertEquals(valid, result.getCreated());
+        assertEquals(2, result.getErrors().size());
+        assertTrue(result.getErrors().containsKey(1));
+        assertTrue(result.getErrors().containsKey(2));
+    }
+
+    @Test
+    public void createAllShouldCatchExceptionsAndThrowServiceException() {
+        exception.expect(ServiceException.class);
+        exception.expectMessage("Cannot create batch of 1 WorkItems");
+        List<String> descriptions = Collections.singletonList("Do something!");
+        when(workItemRepository.findByDescriptionIn(descriptions)).thenThrow(dataAccessException);
+        workItemService.createAll(descriptions);
+    }
+
     @Test
     public void createShouldCatchExceptionsAndThrowServiceException() {
         String workItemDescription = "Do something!";
@@ -464,7 +621,7 @@ public final class TestWorkItemService {
     @Test
     public void setUserShouldCatchExceptionsAndThrowServiceException() {
         exception.expect(ServiceException.class);
-        when(userRepository.findByUserNumber(userNumber)).thenReturn(user);
+        when(userRepository.findLockedByUserNumber(userNumber)).thenReturn(user);
         when(user.isActive()).thenReturn(true);
         when(user.getWorkItems()).thenReturn(workItems);
         when(workItemRepository.findOne(workItemId)).thenThrow(dataAccessException);
@@ -0,0 +1,9 @@
+package se.teknikhogskolan.springcasemanagement.tracing;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({ TestTracer.class, TestSpanExporters.class })
+public class AllTracingTests {}
@@ -0,0 +1,64 @@
+package se.teknikhogskolan.springcasemanagement.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public final class TestSpanExporters {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void inMemoryExporterDropsTheOldestSpans() {
+        InMemorySpanExporter spans = new InMemorySpanExporter(2);
+        Tracer tracer = new Tracer(spans, 1.0);
+        tracer.start("first").close();
+        tracer.start("second").close();
+        tracer.start("third").close();
+
+        assertEquals(2, spans.getSpans().size());
+        assertEquals("second", spans.getSpans().get(0).getName());
+    }
+
+    @Test
+    public void fileExporterWritesAJsonLinePerSpan() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("spans.jsonl");
+        Tracer tracer = new Tracer(new FileSpanExporter(file), 1.0);
+        try (Span root = tracer.start("TeamService.addUserToTeam")) {
+            try (Span child = tracer.start("UserRepository.findOne")) {
+                child.setAttribute("id", 7L).setAttribute("note", "a \"quoted\"\nline");
+            }
+        }
+        tracer.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0), lines.get(0).startsWith("{\"traceId\":\""));
+        assertTrue(lines.get(0), lines.get(0).contains("\"name\":\"UserRepository.findOne\""));
+        assertTrue(lines.get(0),
+                lines.get(0).contains("\"attributes\":{\"id\":7,\"note\":\"a \\\"quoted\\\"\\u000aline\"}"));
+        assertTrue(lines.get(1), lines.get(1).contains("\"name\":\"TeamService.addUserToTeam\""));
+        assertFalse(lines.get(1), lines.get(1).contains("parentId"));
+    }
+
+    @Test
+    public void fileExporterDropsSpansItCannotWrite() throws IOException {
+        FileSpanExporter exporter = new FileSpanExporter(folder.getRoot().toPath().resolve("spans.jsonl"));
+        exporter.close();
+        Tracer tracer = new Tracer(exporter, 1.0);
+
+        tracer.start("TeamService.addUserToTeam").close();
+        tracer.start("TeamService.addUserToTeam").close();
+    }
+}
@@ -0,0 +1,110 @@
+package se.teknikhogskolan.springcasemanagement.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public final class TestTracer {
+
+    private final InMemorySpanExporter spans = new InMemorySpanExporter(100);
+    private final Tracer tracer = new Tracer(spans, 1.0);
+
+    @Test
+    public void spansStartedWhileASpanIsOpenAreItsChildren() {
+        try (Span root = tracer.start("TeamService.addUserToTeam")) {
+            try (Span child = tracer.start("UserRepository.findOne")) {
+                assertSame(child, tracer.currentSpan());
+            }
+            try (Span child = tracer.start("transaction.commit")) {
+                assertEquals(root.getSpanId(), child.getParentId());
+                assertEquals(root.getTraceId(), child.getTraceId());
+            }
+            assertSame(root, tracer.currentSpan());
+        }
+
+        List<Span> finished = spans.getSpans();
+        assertEquals(3, finished.size());
+        assertEquals("UserRepository.findOne", finished.get(0).getName());
+        assertEquals(finished.get(2).getSpanId(), finished.get(0).getParentId());
+        assertNull(finished.get(2).getParentId());
+        assertTrue(finished.get(2).getDurationNanos() >= finished.get(0).getDurationNanos());
+        assertNull(tracer.currentSpan());
+    }
+
+    @Test
+    public void rootSpansStartNewTraces() {
+        try (Span first = tracer.start("first"); Span ignored = tracer.start("child")) {
+            assertEquals(32, first.getTraceId().length());
+            assertEquals(16, first.getSpanId().length());
+        }
+        try (Span second = tracer.start("second")) {
+            assertNotEquals(spans.getSpans().get(0).getTraceId(), second.getTraceId());
+        }
+    }
+
+    @Test
+    public void closingTwiceExportsOnce() {
+        Span span = tracer.start("twice");
+        span.close();
+        span.close();
+
+        assertEquals(1, spans.getSpans().size());
+    }
+
+    @Test
+    public void errorsAndAttributesAreRecorded() {
+        try (Span span = tracer.start("failing")) {
+            span.setAttribute("rows", 3).setError(new IllegalStateException());
+        }
+
+        Span span = spans.getSpans().get(0);
+        assertEquals("IllegalStateException", span.getError());
+        assertEquals(3, span.getAttributes().get("rows"));
+    }
+
+    @Test
+    public void wrappedTasksJoinTheTraceOnAnotherThread() throws Exception {
+        Span root = tracer.start("root");
+        CompletableFuture<Span> child = CompletableFuture.supplyAsync(tracer.wrap(() -> {
+            try (Span span = tracer.start("child")) {
+                return span;
+            }
+        }));
+        child.get(5, TimeUnit.SECONDS);
+        root.close();
+
+        assertEquals(root.getTraceId(), child.get().getTraceId());
+        assertEquals(root.getSpanId(), child.get().getParentId());
+        assertNotEquals(Thread.currentThread().getName(), child.get().getThread());
+    }
+
+    @Test
+    public void unsampledTracesAreNotExported() {
+        Tracer neverSampled = new Tracer(spans, 0.0);
+        try (Span root = neverSampled.start("root"); Span child = neverSampled.start("child")) {
+            assertFalse(child.isSampled());
+            assertSame(child, neverSampled.currentSpan());
+        }
+
+        assertTrue(spans.getSpans().isEmpty());
+        assertNull(neverSampled.currentSpan());
+    }
+
+    @Test
+    public void disabledTracerKeepsNoState() {
+        Tracer disabled = new Tracer(null, 1.0);
+        try (Span span = disabled.start("anything")) {
+            assertFalse(disabled.isEnabled());
+            assertNull(disabled.currentSpan());
+        }
+    }
+}